@@ -0,0 +1,53 @@
+package com.example.javaexample.benchmark;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//a Testcontainers Postgres unless -Dbenchmark.datasource.url points at a scratch database,
+//whose customer table the benchmarks truncate on every trial
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres;
+    private final Map<String, Object> properties = new HashMap<>();
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> postgres) {
+        this.postgres = postgres;
+    }
+
+    static BenchmarkDatabase start() {
+        String url = System.getProperty("benchmark.datasource.url");
+        if (url != null) {
+            BenchmarkDatabase database = new BenchmarkDatabase(null);
+            database.properties.put("spring.datasource.url", url);
+            database.properties.put("spring.datasource.username", System.getProperty("benchmark.datasource.username", "java"));
+            database.properties.put("spring.datasource.password", System.getProperty("benchmark.datasource.password", "java1234"));
+            return database;
+        }
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:latest");
+        postgres.start();
+        BenchmarkDatabase database = new BenchmarkDatabase(postgres);
+        database.properties.put("spring.datasource.url", postgres.getJdbcUrl());
+        database.properties.put("spring.datasource.username", postgres.getUsername());
+        database.properties.put("spring.datasource.password", postgres.getPassword());
+        return database;
+    }
+
+    //datasource settings plus the application settings every benchmark wants
+    Map<String, Object> applicationProperties() {
+        Map<String, Object> applicationProperties = new HashMap<>(properties);
+        applicationProperties.put("spring.jpa.show-sql", "false");
+        applicationProperties.put("spring.cache.type", "none");
+        applicationProperties.put("customer.email-filter.enabled", "false");
+        applicationProperties.put("logging.level.root", "warn");
+        return applicationProperties;
+    }
+
+    @Override
+    public void close() {
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.javaexample.benchmark;
+
+import com.example.javaexample.JavaExampleApplication;
+import com.example.javaexample.domain.Customer;
+import com.example.javaexample.domain.CustomerCompactDataAccessService;
+import com.example.javaexample.domain.CustomerDAO;
+import com.example.javaexample.domain.CustomerInMemoryDataAccessService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerDAOBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"jdbcTemplateRepository", "jpaRepository", "inMemoryRepository", "compactInMemoryRepository"})
+    public String repository;
+
+    @Param("10000")
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private CustomerDAO customerDAO;
+    private List<Customer> seeded;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        context = new SpringApplicationBuilder(JavaExampleApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(database.applicationProperties())
+                .run();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("TRUNCATE customer RESTART IDENTITY");
+        //the in-memory stores are not beans, so they are built here
+        customerDAO = switch (repository) {
+            case "inMemoryRepository" -> new CustomerInMemoryDataAccessService();
+            case "compactInMemoryRepository" -> new CustomerCompactDataAccessService();
+            default -> context.getBean(repository, CustomerDAO.class);
+        };
+
+        //seeded through the same statement as POST /api/v1/customers/batch
+        customerDAO.insertCustomersIfAbsent(IntStream.range(0, rows)
+                .mapToObj(i -> new Customer("Customer " + i, "customer-" + i + "@benchmark.test", 18 + i % 60))
+                .toList());
+        seeded = customerDAO.getAllCustomers();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<Customer> getCustomerById() {
+        return customerDAO.getCustomerById(randomCustomer().getId());
+    }
+
+    @Benchmark
+    public List<Customer> getAllCustomers() {
+        return customerDAO.getAllCustomers();
+    }
+
+    @Benchmark
+    public Customer insertCustomer() {
+        Customer customer = new Customer("Inserted", "inserted-" + sequence.incrementAndGet() + "@benchmark.test", 30);
+        customerDAO.insertCustomer(customer);
+        return customer;
+    }
+
+    //one partner batch of new customers, the way the batch endpoint writes them
+    @Benchmark
+    public Set<String> insertCustomersIfAbsent() {
+        return customerDAO.insertCustomersIfAbsent(IntStream.range(0, BATCH_SIZE)
+                .mapToObj(i -> new Customer("Batched", "batched-" + sequence.incrementAndGet() + "@benchmark.test", 30))
+                .toList());
+    }
+
+    @Benchmark
+    public boolean existPersonWithEmail() {
+        return customerDAO.existPersonWithEmail(randomCustomer().getEmail());
+    }
+
+    @Benchmark
+    public boolean updateCustomer() {
+        Customer seededCustomer = randomCustomer();
+        Customer customer = new Customer(
+                seededCustomer.getId(),
+                seededCustomer.getName(),
+                seededCustomer.getEmail(),
+                ThreadLocalRandom.current().nextInt(18, 78)
+        );
+        return customerDAO.updateCustomer(customer);
+    }
+
+    @Benchmark
+    public boolean deleteCustomer(DeleteTarget target) {
+        return customerDAO.deleteCustomerById(target.customer.getId());
+    }
+
+    private Customer randomCustomer() {
+        return seeded.get(ThreadLocalRandom.current().nextInt(seeded.size()));
+    }
+
+    //a fresh row per delete; per-invocation setup is only negligible next to a database round trip,
+    //so treat the in-memory delete numbers as an upper bound
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+
+        private Customer customer;
+
+        @Setup(Level.Invocation)
+        public void insert(CustomerDAOBenchmark benchmark) {
+            customer = new Customer("Deleted", "deleted-" + benchmark.sequence.incrementAndGet() + "@benchmark.test", 30);
+            benchmark.customerDAO.insertCustomer(customer);
+            if (customer.getId() == null) {
+                //the plain JDBC insert does not report the generated id
+                customer.setId(benchmark.jdbcTemplate.queryForObject(
+                        "SELECT id FROM customer WHERE email = ?", Long.class, customer.getEmail()));
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.javaexample.benchmark;
+
+import com.example.javaexample.JavaExampleApplication;
+import com.example.javaexample.domain.Customer;
+import com.example.javaexample.domain.CustomerDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//thread-per-request against virtual threads: every JMH thread is a blocking client, so throughput mode gives
+//requests per second and sample mode gives the latency percentiles (p0.99 in the JSON results)
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1024)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class CustomerLoadBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"10", "50"})
+    public int poolSize;
+
+    @Param("1000")
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI[] customerUris;
+    private URI pageUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        Map<String, Object> properties = database.applicationProperties();
+        properties.put("server.port", "0");
+        properties.put("spring.threads.virtual.enabled", virtualThreads);
+        properties.put("spring.datasource.hikari.maximum-pool-size", poolSize);
+        context = new SpringApplicationBuilder(JavaExampleApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(properties)
+                .run();
+
+        context.getBean(JdbcTemplate.class).execute("TRUNCATE customer RESTART IDENTITY");
+        CustomerDAO customerDAO = context.getBean("jdbcTemplateRepository", CustomerDAO.class);
+        customerDAO.insertCustomersIfAbsent(IntStream.range(0, rows)
+                .mapToObj(i -> new Customer("Customer " + i, "customer-" + i + "@benchmark.test", 18 + i % 60))
+                .toList());
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getRequiredProperty("local.server.port") + "/api/v1/customers";
+        customerUris = customerDAO.getAllCustomers().stream()
+                .map(customer -> URI.create(baseUrl + "/" + customer.getId()))
+                .toArray(URI[]::new);
+        pageUri = URI.create(baseUrl + "?limit=50");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+        database.close();
+    }
+
+    @Benchmark
+    public int getCustomerById() throws IOException, InterruptedException {
+        return get(customerUris[ThreadLocalRandom.current().nextInt(customerUris.length)]);
+    }
+
+    @Benchmark
+    public int getCustomerPage() throws IOException, InterruptedException {
+        return get(pageUri);
+    }
+
+    private int get(URI uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET %s returned %d".formatted(uri, response.statusCode()));
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.javaexample.benchmark;
+
+import com.example.javaexample.domain.Customer;
+import com.example.javaexample.domain.CustomerRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomerRowMapperBenchmark {
+
+    private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+    //an in-memory result set, so only the mapping is measured
+    private CachedRowSet resultSet;
+
+    @Setup
+    public void setUp() throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(6);
+        column(metaData, 1, "id", Types.BIGINT);
+        column(metaData, 2, "name", Types.VARCHAR);
+        column(metaData, 3, "email", Types.VARCHAR);
+        column(metaData, 4, "age", Types.INTEGER);
+        column(metaData, 5, "version", Types.BIGINT);
+        column(metaData, 6, "updated_at", Types.TIMESTAMP_WITH_TIMEZONE);
+
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(metaData);
+        resultSet.moveToInsertRow();
+        resultSet.updateLong(1, 42L);
+        resultSet.updateString(2, "Alex");
+        resultSet.updateString(3, "alex@gmail.com");
+        resultSet.updateInt(4, 21);
+        resultSet.updateLong(5, 3L);
+        resultSet.updateTimestamp(6, Timestamp.from(Instant.parse("2024-01-01T10:15:30Z")));
+        resultSet.insertRow();
+        resultSet.moveToCurrentRow();
+        resultSet.first();
+    }
+
+    @Benchmark
+    public Customer mapRow() throws SQLException {
+        return customerRowMapper.mapRow(resultSet, 1);
+    }
+
+    private static void column(RowSetMetaDataImpl metaData, int index, String name, int type) throws SQLException {
+        metaData.setColumnName(index, name);
+        metaData.setColumnLabel(index, name);
+        metaData.setColumnType(index, type);
+    }
+}
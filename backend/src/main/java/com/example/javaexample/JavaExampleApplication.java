@@ -2,9 +2,11 @@ package com.example.javaexample;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 
 
 @SpringBootApplication
+@EnableCaching
 public class JavaExampleApplication {
     public static void main(String[] args) {
         SpringApplication.run(JavaExampleApplication.class, args);
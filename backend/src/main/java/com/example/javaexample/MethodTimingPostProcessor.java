@@ -0,0 +1,111 @@
+package com.example.javaexample;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.aop.support.annotation.AnnotationClassFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//times every public method of @Repository and @Service beans as customer.dao and customer.service, tagged
+//with class, method and outcome; the call count of a timer doubles as its throughput counter
+public class MethodTimingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    static final String DAO_TIMER = "customer.dao";
+    static final String SERVICE_TIMER = "customer.service";
+
+    public MethodTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationClassFilter(Repository.class, true))
+                .union(new AnnotationClassFilter(Service.class, true))
+                .intersection(new TimedMethodMatcher());
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(meterRegistry));
+        //outermost, so a service call is timed as its caller sees it, cache hits included
+        setBeforeExistingAdvisors(true);
+    }
+
+    //a reactive method returns before its work is done, timing it would only measure the assembly
+    private static class TimedMethodMatcher extends StaticMethodMatcher {
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return Modifier.isPublic(method.getModifiers())
+                    && method.getDeclaringClass() != Object.class
+                    && !Publisher.class.isAssignableFrom(method.getReturnType());
+        }
+    }
+
+    private record Timers(Timer success, Timer error) {
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        //registered on the first call of each method, afterwards a call reads the clock and updates two
+        //lock-free counters and a histogram bucket, without allocating
+        private final Map<Class<?>, Map<Method, Timers>> timers = new ConcurrentHashMap<>();
+
+        private TimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Timers timers = timersOf(invocation);
+            if (timers == null) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                timers.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                timers.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timers timersOf(MethodInvocation invocation) {
+            Class<?> targetClass = invocation.getThis().getClass();
+            Map<Method, Timers> classTimers = timers.get(targetClass);
+            if (classTimers == null) {
+                classTimers = timers.computeIfAbsent(targetClass, ignored -> new ConcurrentHashMap<>());
+            }
+            Timers methodTimers = classTimers.get(invocation.getMethod());
+            if (methodTimers == null) {
+                MeterRegistry registry = meterRegistry.getIfAvailable();
+                if (registry == null) {
+                    return null;
+                }
+                methodTimers = classTimers.computeIfAbsent(invocation.getMethod(), method -> register(registry, targetClass, method));
+            }
+            return methodTimers;
+        }
+
+        private static Timers register(MeterRegistry registry, Class<?> targetClass, Method method) {
+            String name = targetClass.isAnnotationPresent(Repository.class) ? DAO_TIMER : SERVICE_TIMER;
+            return new Timers(timer(registry, name, targetClass, method, "success"), timer(registry, name, targetClass, method, "error"));
+        }
+
+        //overloads share a timer, they are one operation with different parameters
+        private static Timer timer(MeterRegistry registry, String name, Class<?> targetClass, Method method, String outcome) {
+            return Timer.builder(name)
+                    .tag("class", targetClass.getSimpleName())
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
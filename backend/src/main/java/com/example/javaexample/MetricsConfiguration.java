@@ -0,0 +1,19 @@
+package com.example.javaexample;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfiguration {
+
+    //static and lazy on the registry: post processors are created before other beans, and a registry created
+    //that early would miss its own customizers and binders
+    @Bean
+    public static MethodTimingPostProcessor methodTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        MethodTimingPostProcessor postProcessor = new MethodTimingPostProcessor(meterRegistry);
+        postProcessor.setProxyTargetClass(true);
+        return postProcessor;
+    }
+}
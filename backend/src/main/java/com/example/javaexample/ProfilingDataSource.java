@@ -0,0 +1,42 @@
+package com.example.javaexample;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+//hands out connections whose statements report every execution to the profiler. the wrappers are plain delegating
+//classes rather than reflective proxies, so a column read costs one virtual call; unwrap and isWrapperFor pass
+//through, so Hikari metrics and PGConnection.getCopyAPI still reach the pool and the driver
+public class ProfilingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final SqlStatementProfiler profiler;
+
+    public ProfilingDataSource(DataSource targetDataSource, SqlStatementProfiler profiler) {
+        super(targetDataSource);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new ProfilingConnection(obtainTargetDataSource().getConnection(), profiler);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new ProfilingConnection(obtainTargetDataSource().getConnection(username, password), profiler);
+    }
+
+    //destroy-method inference only sees this wrapper, so the pool behind it is closed from here
+    @Override
+    public void close() throws Exception {
+        DataSource target = getTargetDataSource();
+        while (!(target instanceof AutoCloseable) && target instanceof DelegatingDataSource delegating) {
+            target = delegating.getTargetDataSource();
+        }
+        if (target instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.javaexample;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//active once customer.replicas.urls lists a replica; the reactive profile reads through R2DBC and keeps its pool
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty(name = "customer.replicas.urls")
+public class ReplicaRoutingConfiguration {
+
+    //replaces the pool DataSourceAutoConfiguration would build; every replica takes its settings from the
+    //primary, spring.datasource.hikari included
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                               Environment environment,
+                                               @Value("${customer.replicas.urls}") List<String> urls,
+                                               @Value("${customer.replicas.username:${spring.datasource.username:}}") String username,
+                                               @Value("${customer.replicas.password:${spring.datasource.password:}}") String password,
+                                               @Value("${customer.replicas.selection:round-robin}") String selection) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("customer-primary");
+        }
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setPoolName(primary.getPoolName() + "-replica-" + (replicas.size() + 1));
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, ReplicaRoutingDataSource.Selection.parse(selection));
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${customer.replicas.read-your-writes:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+
+    //Boot binds the pool it finds behind the DataSource bean, which is the primary; the bean may be wrapped by
+    //the statement profiler, so the replicas are reached through unwrap
+    @Bean
+    public MeterBinder replicaPoolMetrics(DataSource dataSource) {
+        return registry -> unwrap(dataSource).getReplicas().stream()
+                .filter(replica -> replica.getMetricsTrackerFactory() == null)
+                .forEach(replica -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+
+    private static ReplicaRoutingDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource.unwrap(ReplicaRoutingDataSource.class);
+        } catch (SQLException e) {
+            throw new IllegalStateException("The DataSource does not route to replicas", e);
+        }
+    }
+}
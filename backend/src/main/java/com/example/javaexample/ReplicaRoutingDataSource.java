@@ -0,0 +1,161 @@
+package com.example.javaexample;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//read-only transactions go to a replica, everything else and every thread pinned to the primary goes to the
+//primary; the connection is only taken on the first statement, by then the transaction has declared itself.
+//within a request every read goes to the replica of its first read: replicas lag by different amounts, and a
+//version read on one replica must never be paired with a body read from a replica further behind
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+    //the replica the current request read from first, -1 until it reads
+    private static final ThreadLocal<int[]> REQUEST_REPLICA = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Selection selection) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("at least one replica is needed");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        Router router = new Router(this.replicas, selection);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < this.replicas.size(); i++) {
+            targets.put(i, this.replicas.get(i));
+        }
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+        //the pool defaults, so that building the proxy does not have to ask a database for them
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        afterPropertiesSet();
+    }
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    public static void stickToOneReplica() {
+        REQUEST_REPLICA.set(new int[]{-1});
+    }
+
+    public static void unstick() {
+        REQUEST_REPLICA.remove();
+    }
+
+    //for work that has to see every committed write, whatever thread it runs on
+    public static void onPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean pinned = isPinnedToPrimary();
+        pinToPrimary();
+        try {
+            return work.get();
+        } finally {
+            if (!pinned) {
+                unpin();
+            }
+        }
+    }
+
+    public List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LOADED;
+
+        public static Selection parse(String selection) {
+            try {
+                return valueOf(selection.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown replica selection %s, use round-robin or least-loaded".formatted(selection));
+            }
+        }
+    }
+
+    private static class Router extends AbstractRoutingDataSource {
+
+        private final List<HikariDataSource> replicas;
+        private final Selection selection;
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Router(List<HikariDataSource> replicas, Selection selection) {
+            this.replicas = replicas;
+            this.selection = selection;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || isPinnedToPrimary()) {
+                return PRIMARY;
+            }
+            int[] requestReplica = REQUEST_REPLICA.get();
+            if (requestReplica != null && requestReplica[0] >= 0) {
+                return requestReplica[0];
+            }
+            int replica = selection == Selection.LEAST_LOADED ? leastLoaded() : Math.floorMod(next.getAndIncrement(), replicas.size());
+            if (requestReplica != null) {
+                requestReplica[0] = replica;
+            }
+            return replica;
+        }
+
+        //busy and waiting connections, ties go to the replica after the last pick so equal loads still rotate
+        private int leastLoaded() {
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            int best = start;
+            int bestLoad = Integer.MAX_VALUE;
+            for (int i = 0; i < replicas.size(); i++) {
+                int candidate = (start + i) % replicas.size();
+                HikariPoolMXBean pool = replicas.get(candidate).getHikariPoolMXBean();
+                int load = pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+                if (load < bestLoad) {
+                    best = candidate;
+                    bestLoad = load;
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.javaexample;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+//off unless customer.sql-profiler.enabled=true, every statement pays for the timing; replaces spring.jpa.show-sql,
+//which printed every statement and still could not tell the slow ones apart
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.sql-profiler.enabled")
+public class SqlProfilerConfiguration {
+
+    @Bean
+    public SqlStatementProfiler sqlStatementProfiler(
+            @Value("${customer.sql-profiler.slow-threshold:100ms}") Duration slowThreshold,
+            @Value("${customer.sql-profiler.log-sample-rate:0.001}") double logSampleRate,
+            @Value("${customer.sql-profiler.max-statements:500}") int maxStatements,
+            @Value("${customer.sql-profiler.slow-queries:100}") int slowQueries) {
+        return new SqlStatementProfiler(slowThreshold, logSampleRate, maxStatements, slowQueries);
+    }
+
+    //wraps the pool itself, so JdbcTemplate, Hibernate and Flyway statements are all profiled
+    @Bean
+    public static BeanPostProcessor profilingDataSourcePostProcessor(ObjectProvider<SqlStatementProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProfilingDataSource)) {
+                    return new ProfilingDataSource(dataSource, profiler.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlProfilerEndpoint sqlProfilerEndpoint(SqlStatementProfiler profiler) {
+        return new SqlProfilerEndpoint(profiler);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.javaexample;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+//GET /actuator/sql lists the statements that took the most time in total and the last slow executions,
+//DELETE /actuator/sql starts over
+@Endpoint(id = "sql")
+public class SqlProfilerEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SqlStatementProfiler profiler;
+
+    public SqlProfilerEndpoint(SqlStatementProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public SqlProfile profile(@Nullable Integer limit) {
+        int top = limit == null || limit < 1 ? DEFAULT_LIMIT : limit;
+        return new SqlProfile(profiler.topStatements(top), profiler.slowQueries());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+
+    public record SqlProfile(List<SqlStatementProfiler.StatementSnapshot> statements,
+                             List<SqlStatementProfiler.SlowQuery> slowQueries) {
+    }
+}
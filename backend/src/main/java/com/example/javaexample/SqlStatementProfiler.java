@@ -0,0 +1,318 @@
+package com.example.javaexample;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//aggregates executions per normalized statement: literals become ?, whitespace is collapsed and lists of
+//placeholders fold into one, so "IN (?, ?, ?)" and "IN (?)" are the same statement
+public class SqlStatementProfiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlStatementProfiler.class);
+    //statements past the limit are counted together, so generated SQL cannot grow the map without bound
+    static final String OTHER_STATEMENTS = "(other statements)";
+
+    private final Duration slowThreshold;
+    private final double logSampleRate;
+    private final int maxStatements;
+    private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+    //keyed by the raw SQL, which JdbcTemplate and Hibernate hand over as the same few strings again and again
+    private final Map<String, Statistics> statisticsBySql = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicLong slowQueryCount = new AtomicLong();
+
+    public SqlStatementProfiler(Duration slowThreshold, double logSampleRate, int maxStatements, int slowQueryCapacity) {
+        if (logSampleRate < 0 || logSampleRate > 1) {
+            throw new IllegalArgumentException("log-sample-rate must be between 0 and 1");
+        }
+        if (maxStatements < 1 || slowQueryCapacity < 1) {
+            throw new IllegalArgumentException("max-statements and slow-queries must be positive");
+        }
+        this.slowThreshold = slowThreshold;
+        this.logSampleRate = logSampleRate;
+        this.maxStatements = maxStatements;
+        this.slowQueries = new AtomicReferenceArray<>(slowQueryCapacity);
+    }
+
+    public Statistics statisticsOf(String sql) {
+        Statistics cached = statisticsBySql.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = normalize(sql);
+        Statistics statementStatistics = statistics.get(normalized);
+        if (statementStatistics == null) {
+            String key = statistics.size() < maxStatements ? normalized : OTHER_STATEMENTS;
+            statementStatistics = statistics.computeIfAbsent(key, Statistics::new);
+        }
+        if (statisticsBySql.size() < maxStatements * 4) {
+            statisticsBySql.put(sql, statementStatistics);
+        }
+        return statementStatistics;
+    }
+
+    public void record(Statistics statementStatistics, long nanos, long rows, boolean failed) {
+        statementStatistics.record(nanos, rows, failed);
+        if (nanos >= slowThreshold.toNanos()) {
+            SlowQuery slowQuery = new SlowQuery(statementStatistics.sql, millis(nanos), failed, Instant.now());
+            slowQueries.set((int) (slowQueryCount.getAndIncrement() % slowQueries.length()), slowQuery);
+            LOGGER.warn("Slow statement took {} ms: {}", slowQuery.durationMillis(), slowQuery.sql());
+        } else if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            LOGGER.info("Statement took {} ms: {}", millis(nanos), statementStatistics.sql);
+        }
+    }
+
+    public List<StatementSnapshot> topStatements(int limit) {
+        return statistics.values().stream()
+                .map(Statistics::snapshot)
+                .sorted(Comparator.comparingDouble(StatementSnapshot::totalMillis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    //the last slow executions, newest first
+    public List<SlowQuery> slowQueries() {
+        long count = slowQueryCount.get();
+        int capacity = slowQueries.length();
+        List<SlowQuery> queries = new ArrayList<>(capacity);
+        for (long i = count - 1; i >= 0 && i >= count - capacity; i--) {
+            SlowQuery slowQuery = slowQueries.get((int) (i % capacity));
+            if (slowQuery != null) {
+                queries.add(slowQuery);
+            }
+        }
+        return queries;
+    }
+
+    public void reset() {
+        statisticsBySql.clear();
+        statistics.clear();
+        for (int i = 0; i < slowQueries.length(); i++) {
+            slowQueries.set(i, null);
+        }
+        slowQueryCount.set(0);
+    }
+
+    static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i);
+                placeholder(normalized);
+            } else if (Character.isDigit(c) && !partOfIdentifier(normalized)) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                placeholder(normalized);
+            } else if (c == '?') {
+                i++;
+                placeholder(normalized);
+            } else if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+            } else if (c == ')' && normalized.toString().endsWith("(?), (?")) {
+                //a multi-row VALUES list folds like a placeholder list
+                i++;
+                normalized.setLength(normalized.length() - ", (?".length());
+            } else {
+                i++;
+                normalized.append(c);
+            }
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == ' ') {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    private static int skipQuoted(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean partOfIdentifier(StringBuilder normalized) {
+        if (normalized.isEmpty()) {
+            return false;
+        }
+        char previous = normalized.charAt(normalized.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$' || previous == '"';
+    }
+
+    //"?, ?" and "?,?" fold into the placeholder before them
+    private static void placeholder(StringBuilder normalized) {
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end > 1 && normalized.charAt(end - 1) == ',' && placeholderBefore(normalized, end - 1)) {
+            normalized.setLength(end - 1);
+            while (normalized.charAt(normalized.length() - 1) == ' ') {
+                normalized.setLength(normalized.length() - 1);
+            }
+            return;
+        }
+        normalized.append('?');
+    }
+
+    private static boolean placeholderBefore(StringBuilder normalized, int comma) {
+        int i = comma;
+        while (i > 0 && normalized.charAt(i - 1) == ' ') {
+            i--;
+        }
+        return i > 0 && normalized.charAt(i - 1) == '?';
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public static class Statistics {
+
+        private final String sql;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Statistics(String sql) {
+            this.sql = sql;
+        }
+
+        //rows read from a result set arrive after the execution was recorded
+        public void addRows(long count) {
+            rows.add(count);
+        }
+
+        private void record(long nanos, long rowCount, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.record(nanos);
+        }
+
+        private StatementSnapshot snapshot() {
+            long callCount = calls.sum();
+            long total = totalNanos.sum();
+            return new StatementSnapshot(
+                    sql,
+                    callCount,
+                    errors.sum(),
+                    rows.sum(),
+                    millis(total),
+                    callCount == 0 ? 0 : millis(total / callCount),
+                    millis(histogram.percentile(0.5)),
+                    millis(histogram.percentile(0.95)),
+                    millis(histogram.percentile(0.99)),
+                    millis(maxNanos.get())
+            );
+        }
+    }
+
+    //log-linear buckets on microseconds: exact below 16us, then 8 buckets per power of two, so a percentile is
+    //off by at most 12.5% over the whole range up to days
+    static class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int LINEAR_LIMIT = 1 << (SUB_BUCKET_BITS + 1);
+        private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - SUB_BUCKET_BITS - 1) * (1 << SUB_BUCKET_BITS);
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            counts.incrementAndGet(bucket(Math.max(0, nanos) / 1_000));
+        }
+
+        //the upper bound of the bucket holding the percentile, in nanoseconds
+        long percentile(double percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return upperBound(i) * 1_000;
+                }
+            }
+            return upperBound(BUCKETS - 1) * 1_000;
+        }
+
+        static int bucket(long micros) {
+            if (micros < LINEAR_LIMIT) {
+                return (int) micros;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+            int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & ((1 << SUB_BUCKET_BITS) - 1);
+            return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * (1 << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < LINEAR_LIMIT) {
+                return bucket + 1;
+            }
+            int exponent = (bucket - LINEAR_LIMIT) / (1 << SUB_BUCKET_BITS) + SUB_BUCKET_BITS + 1;
+            int subBucket = (bucket - LINEAR_LIMIT) % (1 << SUB_BUCKET_BITS);
+            long width = 1L << (exponent - SUB_BUCKET_BITS);
+            return (1L << exponent) + (subBucket + 1) * width;
+        }
+    }
+
+    public record StatementSnapshot(String sql,
+                                    long calls,
+                                    long errors,
+                                    long rows,
+                                    double totalMillis,
+                                    double meanMillis,
+                                    double p50Millis,
+                                    double p95Millis,
+                                    double p99Millis,
+                                    double maxMillis) {
+    }
+
+    public record SlowQuery(String sql, double durationMillis, boolean failed, Instant executedAt) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.javaexample.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -9,15 +11,19 @@ import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 
+import java.time.Instant;
 import java.util.Objects;
 
 @Entity
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Table(name = "customer", uniqueConstraints = {
         @UniqueConstraint(name = "customer_email_uk", columnNames = "email")
 })
 public class Customer {
     @Id
-    @SequenceGenerator(name = "customer_id_seq", sequenceName = "customer_id_seq", allocationSize = 1)
+    //the sequence steps by the allocation size (V3) so a nextval reserves a block here; inserts through the column
+    //default take a whole block for one id too, ids grow up to 50 times faster than rows and are read as BIGINT
+    @SequenceGenerator(name = "customer_id_seq", sequenceName = "customer_id_seq", allocationSize = 50)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_id_seq")
     private Long id;
     @Column(nullable = false)
@@ -26,6 +32,13 @@ public class Customer {
     private String email;
     @Column(nullable = false)
     private Integer age;
+    //maintained by the customer_bump_version trigger and sent as ETag/Last-Modified rather than in the body
+    @JsonIgnore
+    @Column(insertable = false, updatable = false)
+    private Long version;
+    @JsonIgnore
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private Instant updatedAt;
 
     public Customer() {
     }
@@ -76,6 +89,22 @@ public class Customer {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,12 @@
+package com.example.javaexample.domain;
+
+public record CustomerBatchRegistrationResult(int index, String email, Status status) {
+
+    public enum Status {
+        CREATED,
+        EMAIL_ALREADY_EXISTS,
+        DUPLICATE_IN_REQUEST,
+        //missing a name, an email or an age
+        INVALID
+    }
+}
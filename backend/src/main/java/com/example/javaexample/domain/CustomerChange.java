@@ -0,0 +1,9 @@
+package com.example.javaexample.domain;
+
+//the customer as it is now, or null for a tombstone
+public record CustomerChange(CustomerChangeToken token, long customerId, Customer customer) {
+
+    public boolean isDeleted() {
+        return customer == null;
+    }
+}
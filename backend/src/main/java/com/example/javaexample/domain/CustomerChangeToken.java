@@ -0,0 +1,33 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.RequestValidationException;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+//the position of the last change a delta sync returned, handed out as "<change_tx>-<change_seq>"
+public record CustomerChangeToken(long tx, long seq) {
+
+    public static final CustomerChangeToken START = new CustomerChangeToken(0, 0);
+
+    @JsonCreator
+    public static CustomerChangeToken parse(String token) {
+        int separator = token.indexOf('-');
+        try {
+            if (separator > 0) {
+                long tx = Long.parseLong(token.substring(0, separator));
+                long seq = Long.parseLong(token.substring(separator + 1));
+                if (tx >= 0 && seq >= 0) {
+                    return new CustomerChangeToken(tx, seq);
+                }
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new RequestValidationException("Invalid change token %s".formatted(token));
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return tx + "-" + seq;
+    }
+}
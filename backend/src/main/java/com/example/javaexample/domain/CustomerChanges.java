@@ -0,0 +1,22 @@
+package com.example.javaexample.domain;
+
+import java.util.List;
+
+//a customer changed several times since the token shows up once, as it is now; deletions are applied before the
+//customers, a live row is always newer than a tombstone of its id. the next sync passes the token back and, while
+//hasMore, can ask again right away
+public record CustomerChanges(List<Customer> customers, List<Long> deletedIds, CustomerChangeToken token, boolean hasMore) {
+
+    static CustomerChanges of(List<CustomerChange> changes, CustomerChangeToken since, boolean hasMore) {
+        List<Customer> customers = changes.stream()
+                .filter(change -> !change.isDeleted())
+                .map(CustomerChange::customer)
+                .toList();
+        List<Long> deletedIds = changes.stream()
+                .filter(CustomerChange::isDeleted)
+                .map(CustomerChange::customerId)
+                .toList();
+        CustomerChangeToken token = changes.isEmpty() ? since : changes.get(changes.size() - 1).token();
+        return new CustomerChanges(customers, deletedIds, token, hasMore);
+    }
+}
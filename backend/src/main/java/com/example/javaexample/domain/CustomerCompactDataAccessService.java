@@ -0,0 +1,652 @@
+package com.example.javaexample.domain;
+
+import org.springframework.dao.DuplicateKeyException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+//column store for millions of rows: customers only exist as objects on the way in and out.
+//like CustomerInMemoryDataAccessService it is not a bean and only serves the benchmarks and tests
+public class CustomerCompactDataAccessService implements CustomerDAO {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int STREAM_BATCH_SIZE = 1000;
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int chunkSize;
+    private StringArea strings;
+    //bytes of strings no slot refers to any more, and the room they take until the next compaction
+    private long deadStringBytes;
+    private IdIndex idIndex = new IdIndex(INITIAL_CAPACITY);
+
+    //one slot per inserted row in id order, so slots can be binary searched by id
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private long[] nameRefs = new long[INITIAL_CAPACITY];
+    private long[] emailRefs = new long[INITIAL_CAPACITY];
+    private int[] emailHashes = new int[INITIAL_CAPACITY];
+    private final BitSet deleted = new BitSet();
+    private final SortedMap<Integer, Long> customersByAge = new TreeMap<>();
+    private int size;
+    private int liveRows;
+    private long nextId = 1;
+
+    //open addressing table of slot + 1, zero meaning empty
+    private int[] emailTable = new int[INITIAL_CAPACITY * 2];
+    private int emailCount;
+
+    public CustomerCompactDataAccessService() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    CustomerCompactDataAccessService(int chunkSize) {
+        this.chunkSize = chunkSize;
+        this.strings = new StringArea(chunkSize);
+    }
+
+    @Override
+    public List<Customer> getAllCustomers() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(liveRows);
+            for (int slot = 0; slot < size; slot++) {
+                if (!deleted.get(slot)) {
+                    customers.add(materialize(slot));
+                }
+            }
+            return customers;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit) {
+        return getCustomers(after, limit, CustomerField.ALL);
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<Customer> customers = new ArrayList<>(Math.min(limit, liveRows));
+            for (int slot = firstSlotAfter(after); slot < size && customers.size() < limit; slot++) {
+                if (!deleted.get(slot)) {
+                    customers.add(materialize(slot, fields));
+                }
+            }
+            return customers;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachCustomer(Consumer<Customer> consumer) {
+        forEachCustomer(CustomerField.ALL, consumer);
+    }
+
+    @Override
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> consumer) {
+        //materialize one batch at a time so the consumer runs without holding the lock
+        long after = 0;
+        List<Customer> batch;
+        do {
+            batch = getCustomers(after, STREAM_BATCH_SIZE, fields);
+            batch.forEach(consumer);
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == STREAM_BATCH_SIZE);
+    }
+
+    @Override
+    public Optional<Customer> getCustomerById(Long id) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int slot = idIndex.get(id);
+            return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    //a scan, the column store keeps no search index; ages are checked before any string is decoded
+    @Override
+    public List<Customer> searchCustomers(CustomerSearchCriteria criteria, Long after, int limit) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<Customer> found = new ArrayList<>(Math.min(limit, liveRows));
+            for (int slot = firstSlotAfter(after); slot < size && found.size() < limit; slot++) {
+                if (deleted.get(slot)
+                        || criteria.minAge() != null && ages[slot] < criteria.minAge()
+                        || criteria.maxAge() != null && ages[slot] > criteria.maxAge()) {
+                    continue;
+                }
+                Customer customer = materialize(slot);
+                if (criteria.matches(customer)) {
+                    found.add(customer);
+                }
+            }
+            return found;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public CustomerStats getCustomerStats() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return CustomerStats.of(customersByAge);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        if (!insertCustomerIfAbsent(customer)) {
+            throw duplicateEmail(customer.getEmail());
+        }
+    }
+
+    @Override
+    public boolean insertCustomerIfAbsent(Customer customer) {
+        byte[] email = encode(customer.getEmail());
+        int hash = hash(customer.getEmail());
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (findEmail(email, hash) >= 0) {
+                return false;
+            }
+            append(customer, email, hash);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            //check the whole batch first so it is all or nothing
+            Set<String> batchEmails = new HashSet<>();
+            for (Customer customer : customers) {
+                String email = customer.getEmail();
+                if (!batchEmails.add(email) || findEmail(encode(email), hash(email)) >= 0) {
+                    throw duplicateEmail(email);
+                }
+            }
+            ensureCapacity(size + customers.size());
+            for (Customer customer : customers) {
+                append(customer, encode(customer.getEmail()), hash(customer.getEmail()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean existPersonWithEmail(String email) {
+        byte[] bytes = encode(email);
+        int hash = hash(email);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return findEmail(bytes, hash) >= 0;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return emails.stream()
+                    .filter(email -> findEmail(encode(email), hash(email)) >= 0)
+                    .collect(Collectors.toSet());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteCustomerById(Long id) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int slot = idIndex.get(id);
+            if (slot < 0) {
+                return false;
+            }
+            removeEmail(slot);
+            idIndex.remove(ids[slot]);
+            deleted.set(slot);
+            countAge(ages[slot], -1);
+            deadStringBytes += StringArea.length(nameRefs[slot]) + StringArea.length(emailRefs[slot]);
+            liveRows--;
+            compactIfWasteful();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer) {
+        byte[] email = encode(customer.getEmail());
+        int hash = hash(customer.getEmail());
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int slot = idIndex.get(customer.getId());
+            if (slot < 0) {
+                return false;
+            }
+            if (!strings.matches(emailRefs[slot], email)) {
+                if (findEmail(email, hash) >= 0) {
+                    throw duplicateEmail(customer.getEmail());
+                }
+                removeEmail(slot);
+                deadStringBytes += StringArea.length(emailRefs[slot]);
+                emailRefs[slot] = strings.append(email);
+                emailHashes[slot] = hash;
+                addEmail(slot);
+            }
+            byte[] name = encode(customer.getName());
+            if (!strings.matches(nameRefs[slot], name)) {
+                deadStringBytes += StringArea.length(nameRefs[slot]);
+                nameRefs[slot] = strings.append(name);
+            }
+            countAge(ages[slot], -1);
+            ages[slot] = customer.getAge();
+            countAge(ages[slot], 1);
+            compactIfWasteful();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return liveRows;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public long offHeapBytes() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return strings.allocatedBytes();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void append(Customer customer, byte[] email, int hash) {
+        ensureCapacity(size + 1);
+        int slot = size++;
+        long id = nextId++;
+        ids[slot] = id;
+        ages[slot] = customer.getAge();
+        nameRefs[slot] = strings.append(encode(customer.getName()));
+        emailRefs[slot] = strings.append(email);
+        emailHashes[slot] = hash;
+        idIndex.put(id, slot);
+        addEmail(slot);
+        countAge(ages[slot], 1);
+        liveRows++;
+        customer.setId(id);
+    }
+
+    //once at least half of the strings or of the slots are dead; each compaction copies only live rows, and as
+    //many rows have died since the last one, so its cost is spread over the writes that made it necessary
+    private void compactIfWasteful() {
+        int deadSlots = size - liveRows;
+        boolean wastefulStrings = deadStringBytes > chunkSize && deadStringBytes * 2 > strings.appendedBytes();
+        boolean wastefulSlots = deadSlots > INITIAL_CAPACITY && deadSlots * 2 > size;
+        if (wastefulStrings || wastefulSlots) {
+            compact();
+        }
+    }
+
+    //live rows move down into a dense prefix of the slots, in id order, with their strings copied to a new area; the
+    //old buffers are freed once collected
+    private void compact() {
+        StringArea compacted = new StringArea(chunkSize);
+        int live = 0;
+        for (int slot = 0; slot < size; slot++) {
+            if (deleted.get(slot)) {
+                continue;
+            }
+            ids[live] = ids[slot];
+            ages[live] = ages[slot];
+            nameRefs[live] = compacted.append(strings.bytes(nameRefs[slot]));
+            emailRefs[live] = compacted.append(strings.bytes(emailRefs[slot]));
+            emailHashes[live] = emailHashes[slot];
+            live++;
+        }
+        strings = compacted;
+        deadStringBytes = 0;
+        deleted.clear();
+        size = live;
+
+        //both tables need a power of two
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 2);
+        idIndex = new IdIndex(capacity);
+        emailTable = new int[capacity * 2];
+        emailCount = 0;
+        for (int slot = 0; slot < size; slot++) {
+            idIndex.put(ids[slot], slot);
+            addEmail(slot);
+        }
+    }
+
+    private void countAge(int age, long delta) {
+        if (customersByAge.merge(age, delta, Long::sum) == 0) {
+            customersByAge.remove(age);
+        }
+    }
+
+    private Customer materialize(int slot) {
+        return new Customer(
+                ids[slot],
+                strings.read(nameRefs[slot]),
+                strings.read(emailRefs[slot]),
+                ages[slot]
+        );
+    }
+
+    //unrequested strings are never decoded
+    private Customer materialize(int slot, Set<CustomerField> fields) {
+        if (fields.containsAll(CustomerField.ALL)) {
+            return materialize(slot);
+        }
+        Customer customer = new Customer();
+        customer.setId(ids[slot]);
+        if (fields.contains(CustomerField.NAME)) {
+            customer.setName(strings.read(nameRefs[slot]));
+        }
+        if (fields.contains(CustomerField.EMAIL)) {
+            customer.setEmail(strings.read(emailRefs[slot]));
+        }
+        if (fields.contains(CustomerField.AGE)) {
+            customer.setAge(ages[slot]);
+        }
+        return customer;
+    }
+
+    private int firstSlotAfter(long after) {
+        int position = Arrays.binarySearch(ids, 0, size, after);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        ages = Arrays.copyOf(ages, newCapacity);
+        nameRefs = Arrays.copyOf(nameRefs, newCapacity);
+        emailRefs = Arrays.copyOf(emailRefs, newCapacity);
+        emailHashes = Arrays.copyOf(emailHashes, newCapacity);
+    }
+
+    private int findEmail(byte[] email, int hash) {
+        int mask = emailTable.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = emailTable[i];
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = entry - 1;
+            if (emailHashes[slot] == hash && strings.matches(emailRefs[slot], email)) {
+                return slot;
+            }
+        }
+    }
+
+    private void addEmail(int slot) {
+        if ((emailCount + 1) * 2 > emailTable.length) {
+            int[] old = emailTable;
+            emailTable = new int[old.length * 2];
+            for (int entry : old) {
+                if (entry != 0) {
+                    placeEmail(entry - 1);
+                }
+            }
+        }
+        placeEmail(slot);
+        emailCount++;
+    }
+
+    private void placeEmail(int slot) {
+        int mask = emailTable.length - 1;
+        int i = emailHashes[slot] & mask;
+        while (emailTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        emailTable[i] = slot + 1;
+    }
+
+    private void removeEmail(int slot) {
+        int mask = emailTable.length - 1;
+        int hole = emailHashes[slot] & mask;
+        while (emailTable[hole] != slot + 1) {
+            hole = (hole + 1) & mask;
+        }
+        //backward shift deletion keeps probe chains intact without tombstones
+        for (int i = (hole + 1) & mask; emailTable[i] != 0; i = (i + 1) & mask) {
+            int home = emailHashes[emailTable[i] - 1] & mask;
+            if (canFill(hole, i, home)) {
+                emailTable[hole] = emailTable[i];
+                hole = i;
+            }
+        }
+        emailTable[hole] = 0;
+        emailCount--;
+    }
+
+    private static boolean canFill(int hole, int position, int home) {
+        //an entry may move back into the hole unless its home lies cyclically in (hole, position]
+        return position > hole
+                ? home <= hole || home > position
+                : home <= hole && home > position;
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String email) {
+        int hash = email.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static DuplicateKeyException duplicateEmail(String email) {
+        return new DuplicateKeyException("Customer with email %s already exist".formatted(email));
+    }
+
+    //UTF-8 strings appended to direct buffers, addressed by offset << LENGTH_BITS | length
+    private static final class StringArea {
+        private static final int LENGTH_BITS = 20;
+
+        private final int chunkSize;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private int position;
+        private long appendedBytes;
+
+        StringArea(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunk size must be positive");
+            }
+            this.chunkSize = chunkSize;
+        }
+
+        long append(byte[] bytes) {
+            if (bytes.length > chunkSize || bytes.length >= 1 << LENGTH_BITS) {
+                throw new IllegalArgumentException("value of %d bytes is too long".formatted(bytes.length));
+            }
+            if (chunks.isEmpty() || position + bytes.length > chunkSize) {
+                chunks.add(ByteBuffer.allocateDirect(chunkSize));
+                position = 0;
+            }
+            chunks.get(chunks.size() - 1).put(position, bytes);
+            long offset = (long) (chunks.size() - 1) * chunkSize + position;
+            position += bytes.length;
+            appendedBytes += bytes.length;
+            return offset << LENGTH_BITS | bytes.length;
+        }
+
+        String read(long ref) {
+            return new String(bytes(ref), StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes(long ref) {
+            byte[] bytes = new byte[length(ref)];
+            chunk(ref).get(position(ref), bytes);
+            return bytes;
+        }
+
+        boolean matches(long ref, byte[] bytes) {
+            if (length(ref) != bytes.length) {
+                return false;
+            }
+            ByteBuffer chunk = chunk(ref);
+            int start = position(ref);
+            for (int i = 0; i < bytes.length; i++) {
+                if (chunk.get(start + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long allocatedBytes() {
+            return (long) chunks.size() * chunkSize;
+        }
+
+        long appendedBytes() {
+            return appendedBytes;
+        }
+
+        private ByteBuffer chunk(long ref) {
+            return chunks.get((int) ((ref >>> LENGTH_BITS) / chunkSize));
+        }
+
+        private int position(long ref) {
+            return (int) ((ref >>> LENGTH_BITS) % chunkSize);
+        }
+
+        private static int length(long ref) {
+            return (int) (ref & ((1 << LENGTH_BITS) - 1));
+        }
+    }
+
+    //long to int open addressing map; ids start at 1 so zero marks an empty bucket
+    private static final class IdIndex {
+        private long[] keys;
+        private int[] slots;
+        private int count;
+
+        IdIndex(int capacity) {
+            keys = new long[capacity * 2];
+            slots = new int[capacity * 2];
+        }
+
+        int get(long id) {
+            int mask = keys.length - 1;
+            for (int i = home(id, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    return slots[i];
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long id, int slot) {
+            if ((count + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldSlots = slots;
+                keys = new long[oldKeys.length * 2];
+                slots = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        place(oldKeys[i], oldSlots[i]);
+                    }
+                }
+            }
+            place(id, slot);
+            count++;
+        }
+
+        void remove(long id) {
+            int mask = keys.length - 1;
+            int hole = home(id, mask);
+            while (keys[hole] != id) {
+                if (keys[hole] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                if (canFill(hole, i, home(keys[i], mask))) {
+                    keys[hole] = keys[i];
+                    slots[hole] = slots[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            count--;
+        }
+
+        private void place(long id, int slot) {
+            int mask = keys.length - 1;
+            int i = home(id, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = id;
+            slots[i] = slot;
+        }
+
+        private static int home(long id, int mask) {
+            return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
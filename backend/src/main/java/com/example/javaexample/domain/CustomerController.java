@@ -1,42 +1,182 @@
 package com.example.javaexample.domain;
 
+import com.example.javaexample.exception.PreconditionFailedException;
+import com.example.javaexample.exception.ResourceNotFoundException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/v1/customers")
+@Profile("!reactive")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerEventFeed customerEventFeed;
+    private final ObjectMapper objectMapper;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, CustomerEventFeed customerEventFeed, ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerEventFeed = customerEventFeed;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        return customerService.getAllCustomers();
+    public CustomerPage getCustomers(@RequestParam(required = false) Long after,
+                                     @RequestParam(required = false) Integer limit,
+                                     @RequestParam(required = false) String fields,
+                                     WebRequest request) {
+        //the version is read before the page, so a concurrent write can only pair an older ETag with newer rows
+        CustomerVersion tableVersion = customerService.getTableVersion();
+        if (request.checkNotModified(tableVersion.eTag(), tableVersion.updatedAt().toEpochMilli())) {
+            return null;
+        }
+        return customerService.getCustomers(after, limit, CustomerField.parse(fields));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCustomers(@RequestParam(required = false) String fields) {
+        Set<CustomerField> projection = CustomerField.parse(fields);
+        ObjectWriter writer = objectMapper.writerFor(Customer.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                customerService.streamCustomers(projection, customer -> {
+                    try {
+                        writer.writeValue(generator, customer);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public CustomerPage searchCustomers(@RequestParam(required = false) String name,
+                                        @RequestParam(required = false) String email,
+                                        @RequestParam(required = false) Integer minAge,
+                                        @RequestParam(required = false) Integer maxAge,
+                                        @RequestParam(required = false) String match,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer limit) {
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(name, email, minAge, maxAge, CustomerSearchCriteria.Match.parse(match));
+        return customerService.searchCustomers(criteria, after, limit);
+    }
+
+    @GetMapping("/stats")
+    public CustomerStats getCustomerStats(WebRequest request) {
+        //the statistics change with the table, so they revalidate against its version like the list
+        CustomerVersion tableVersion = customerService.getTableVersion();
+        if (request.checkNotModified(tableVersion.eTag(), tableVersion.updatedAt().toEpochMilli())) {
+            return null;
+        }
+        return customerService.getCustomerStats();
+    }
+
+    @GetMapping("/changes")
+    public CustomerChanges getCustomerChanges(@RequestParam(required = false) String since,
+                                              @RequestParam(required = false) Integer limit) {
+        return customerService.getChanges(since, limit);
+    }
+
+    //an EventSource reconnects to the same URL with the Last-Event-ID it saw last, which is newer than any "after"
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCustomerEvents(@RequestParam(required = false) String after,
+                                           @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        String resumeAfter = lastEventId != null ? lastEventId : after;
+        return customerEventFeed.subscribe(resumeAfter == null ? null : CustomerEventCursor.parse(resumeAfter));
     }
 
     @GetMapping("/{id}")
-    public Customer getCustomerById(@PathVariable Long id) {
-        return customerService.getCustomerById(id);
+    public Customer getCustomerById(@PathVariable Long id,
+                                    @RequestParam(required = false) String fields,
+                                    WebRequest request) {
+        //a plain GET is served by the cache alone, under the ETag of the cached row's own version
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null && request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) == null) {
+            Customer customer = customerService.getCustomerById(id);
+            if (customer.getVersion() != null && customer.getUpdatedAt() != null) {
+                CustomerVersion version = new CustomerVersion(customer.getVersion(), customer.getUpdatedAt());
+                request.checkNotModified(version.eTag(), version.updatedAt().toEpochMilli());
+            }
+            return CustomerField.project(customer, CustomerField.parse(fields));
+        }
+        //revalidation costs an index lookup of the version, the row is neither loaded nor serialized
+        CustomerVersion version = customerService.getCustomerVersion(id);
+        if (request.checkNotModified(version.eTag(), version.updatedAt().toEpochMilli())) {
+            return null;
+        }
+        Customer customer = customerService.getCustomerById(id);
+        if (customer.getVersion() == null || customer.getVersion() < version.version()) {
+            customer = customerService.reloadCustomerById(id);
+        }
+        //projected from the cached row, a single row saves nothing by narrowing the SELECT
+        return CustomerField.project(customer, CustomerField.parse(fields));
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public void registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
-        customerService.addCustomer(customerRegistrationRequest);
+    public ResponseEntity<CustomerRegistrationResult> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        if (!customerService.registersAsynchronously()) {
+            customerService.addCustomer(customerRegistrationRequest);
+            return ResponseEntity.status(HttpStatus.CREATED).build();
+        }
+        CustomerRegistrationResult result = customerService.queueCustomer(customerRegistrationRequest);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/customers/registrations/" + result.trackingId()))
+                .body(result);
+    }
+
+    @GetMapping("/registrations/{trackingId}")
+    public CustomerRegistrationResult getRegistration(@PathVariable UUID trackingId) {
+        return customerService.getRegistration(trackingId);
+    }
+
+    @PostMapping("/batch")
+    public List<CustomerBatchRegistrationResult> registerCustomers(@RequestBody List<CustomerRegistrationRequest> requests) {
+        return customerService.addCustomers(requests);
+    }
+
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public CustomerImportResult importCustomers(InputStream csv,
+                                                @RequestParam(defaultValue = "true") boolean header) {
+        return customerService.importCustomers(csv, header);
     }
 
     @DeleteMapping("/{id}")
@@ -46,9 +186,69 @@ public class CustomerController {
     }
 
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public void updateCustomer(@PathVariable Long id, @RequestBody CustomerUpdateRequest request) {
-        customerService.updateCustomer(id, request);
+    public ResponseEntity<Void> updateCustomer(@PathVariable Long id,
+                                               @RequestBody CustomerUpdateRequest request,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return updated(conditionally(id, ifMatch, expectedVersion -> customerService.updateCustomer(id, request, expectedVersion)));
+    }
+
+    @PatchMapping(path = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<Void> patchCustomer(@PathVariable Long id,
+                                              @RequestBody CustomerUpdateRequest request,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return updated(conditionally(id, ifMatch, expectedVersion -> customerService.patchCustomer(id, request, expectedVersion)));
+    }
+
+    private static ResponseEntity<Void> updated(CustomerVersion version) {
+        return ResponseEntity.ok()
+                .eTag(version.eTag())
+                .lastModified(version.updatedAt())
+                .build();
+    }
+
+    //RFC 9110 13.1.1: "*" holds while the customer exists and a list holds when any of its ETags is the current one,
+    //so a missing customer fails the precondition instead of being not found
+    private CustomerVersion conditionally(Long id, String ifMatch, Function<Long, CustomerVersion> write) {
+        if (ifMatch == null) {
+            return write.apply(null);
+        }
+        try {
+            return write.apply(expectedVersion(id, ifMatch));
+        } catch (ResourceNotFoundException e) {
+            throw new PreconditionFailedException("Customer with id %s does not exist".formatted(id));
+        }
+    }
+
+    //null for "*", the write then only needs the customer to exist. only the strong ETags handed out by this
+    //controller can match; a single one is checked by the write itself, a list against the current version first
+    private Long expectedVersion(Long id, String ifMatch) {
+        List<ETag> eTags = ETag.parse(ifMatch);
+        if (eTags.stream().anyMatch(ETag::isWildcard)) {
+            return null;
+        }
+        List<Long> versions = eTags.stream()
+                .filter(eTag -> !eTag.weak())
+                .map(eTag -> parseVersion(eTag.tag()))
+                .filter(Objects::nonNull)
+                .toList();
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        if (!versions.isEmpty()) {
+            long current = customerService.getCustomerVersion(id).version();
+            if (versions.contains(current)) {
+                return current;
+            }
+        }
+        throw new PreconditionFailedException("Customer with id %s does not match %s".formatted(id, ifMatch));
+    }
+
+    private static Long parseVersion(String tag) {
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
 }
@@ -0,0 +1,55 @@
+package com.example.javaexample.domain;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+
+@Repository
+public class CustomerCopyDataAccessService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerCopyDataAccessService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public CustomerImportResult importCustomers(InputStream csv, boolean header) {
+        return jdbcTemplate.execute((ConnectionCallback<CustomerImportResult>) con -> {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("CREATE TEMPORARY TABLE customer_import (name TEXT, email TEXT, age INT) ON COMMIT DROP");
+            }
+
+            //rows are streamed from the request body straight into the staging table
+            CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+            long rows;
+            try {
+                rows = copyManager.copyIn(
+                        "COPY customer_import (name, email, age) FROM STDIN WITH (FORMAT csv, HEADER %s)".formatted(header),
+                        csv
+                );
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            //incomplete rows and emails that already exist (or repeat in the file) are skipped
+            try (Statement statement = con.createStatement()) {
+                long inserted = statement.executeLargeUpdate("""
+                        INSERT INTO customer (name, email, age)
+                        SELECT name, email, age FROM customer_import
+                        WHERE name IS NOT NULL AND email IS NOT NULL AND age IS NOT NULL
+                        ON CONFLICT ON CONSTRAINT customer_email_uk DO NOTHING
+                        """);
+                return new CustomerImportResult(rows, inserted, rows - inserted);
+            }
+        });
+    }
+}
@@ -1,15 +1,56 @@
 package com.example.javaexample.domain;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface CustomerDAO {
 
     List<Customer> getAllCustomers();
+    List<Customer> getCustomers(Long after, int limit);
+    void forEachCustomer(Consumer<Customer> consumer);
     Optional<Customer> getCustomerById(Long id);
     void insertCustomer(Customer customer);
+    boolean insertCustomerIfAbsent(Customer customer);
+    //a bulk load that fails as a whole on a taken email; the batch endpoint needs per item results and goes
+    //through insertCustomersIfAbsent instead
+    void insertCustomers(List<Customer> customers);
     boolean existPersonWithEmail(String email);
-    void deleteCustomer(Customer customer);
-    void updateCustomer(Customer customer);
+    Set<String> findExistingEmails(Collection<String> emails);
+    //both report whether a row was affected, so callers need no existence check first
+    boolean deleteCustomerById(Long id);
+    boolean updateCustomer(Customer customer);
+
+    //stores that can skip columns override these; by default the projection is applied after a full read
+    default List<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields) {
+        return getCustomers(after, limit).stream()
+                .map(customer -> CustomerField.project(customer, fields))
+                .toList();
+    }
+
+    default void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> consumer) {
+        forEachCustomer(customer -> consumer.accept(CustomerField.project(customer, fields)));
+    }
+
+    //emails already taken are skipped and their customers keep a null id; stores that can insert the group in one
+    //statement override this
+    default Set<String> insertCustomersIfAbsent(List<Customer> customers) {
+        Set<String> inserted = new HashSet<>();
+        for (Customer customer : customers) {
+            if (insertCustomerIfAbsent(customer)) {
+                inserted.add(customer.getEmail());
+            }
+        }
+        return inserted;
+    }
+
+    //matches in id order after the cursor
+    List<Customer> searchCustomers(CustomerSearchCriteria criteria, Long after, int limit);
+
+    //maintained as customers are written, so reading them never visits the customers themselves
+    CustomerStats getCustomerStats();
 
 }
@@ -0,0 +1,282 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//a "no" from mightContain is definite; a "yes" still has to be confirmed against the database
+@Component
+public class CustomerEmailBloomFilter implements MeterBinder, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerEmailBloomFilter.class);
+
+    private final CustomerDAO customerDAO;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final int numBits;
+    private final int numHashFunctions;
+
+    //rebuilds scan the whole table, so they get a thread of their own instead of the common pool
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("customer-email-filter-rebuild").daemon().factory());
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder negativeChecks = new LongAdder();
+    private final LongAdder positiveChecks = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+
+    private volatile BitArray bits;
+    //receives writes while a rebuild is scanning the table
+    private volatile BitArray pending;
+    private volatile boolean ready;
+
+    public CustomerEmailBloomFilter(@Qualifier("jdbcTemplateRepository") CustomerDAO customerDAO,
+                                    @Value("${customer.email-filter.enabled:true}") boolean enabled,
+                                    @Value("${customer.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                                    @Value("${customer.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expected-insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("false-positive-rate must be between 0 and 1");
+        }
+        this.customerDAO = customerDAO;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.min(Math.max(optimalBits, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        this.bits = new BitArray(numBits);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild();
+    }
+
+    public boolean mightContain(String email) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long hash64 = hash(email);
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+        BitArray current = bits;
+        for (int i = 1; i <= numHashFunctions; i++) {
+            if (!current.get(index(hash1, hash2, i))) {
+                negativeChecks.increment();
+                return false;
+            }
+        }
+        positiveChecks.increment();
+        return true;
+    }
+
+    public void put(String email) {
+        if (!enabled) {
+            return;
+        }
+        BitArray target = bits;
+        put(target, email);
+        BitArray rebuildTarget = pending;
+        if (rebuildTarget != null) {
+            put(rebuildTarget, email);
+        }
+        //a rebuild may have scanned past this email, swapped in its bits and cleared pending since bits was read;
+        //bits is swapped before pending is cleared, so it shows that here
+        BitArray current;
+        while ((current = bits) != target) {
+            put(current, email);
+            target = current;
+        }
+    }
+
+    public void recordDeletion() {
+        if (!enabled) {
+            return;
+        }
+        //bits cannot be cleared, so a deleted email stays a (false) positive until the next rebuild
+        staleEntries.increment();
+        if (staleEntries.sum() > expectedInsertions / 10) {
+            scheduleRebuild();
+        }
+    }
+
+    public void invalidate() {
+        //rows were written behind the filter's back; answer "maybe" until rebuilt
+        ready = false;
+        invalidations.incrementAndGet();
+        scheduleRebuild();
+    }
+
+    public CompletableFuture<Void> scheduleRebuild() {
+        if (!enabled || rebuilding.get() || rebuilder.isShutdown()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.runAsync(this::rebuild, rebuilder);
+        } catch (RejectedExecutionException e) {
+            //closed since the check above
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        boolean invalidatedDuringScan = false;
+        try {
+            BitArray rebuilt = new BitArray(numBits);
+            pending = rebuilt;
+            long startInvalidations = invalidations.get();
+            long startStaleEntries = staleEntries.sum();
+            //a replica may not have every email put() before the scan began yet
+            ReplicaRoutingDataSource.onPrimary(() -> customerDAO.forEachCustomer(customer -> put(rebuilt, customer.getEmail())));
+            bits = rebuilt;
+            staleEntries.add(-startStaleEntries);
+            invalidatedDuringScan = invalidations.get() != startInvalidations;
+            ready = !invalidatedDuringScan;
+            LOGGER.info("Customer email filter rebuilt with {} bits set, estimated false positive rate {}",
+                    rebuilt.bitCount(), estimatedFalsePositiveRate());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Customer email filter rebuild failed, emails will be checked against the database", e);
+        } finally {
+            pending = null;
+            rebuilding.set(false);
+        }
+        if (invalidatedDuringScan) {
+            scheduleRebuild();
+        }
+    }
+
+    //destroyed before the DataSource it depends on, so a rebuild still scanning is given the chance to finish first
+    @Override
+    public void close() throws InterruptedException {
+        rebuilder.shutdownNow();
+        if (!rebuilder.awaitTermination(10, TimeUnit.SECONDS)) {
+            LOGGER.warn("Customer email filter rebuild did not stop within 10s");
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long memoryBytes() {
+        return (long) bits.words() * Long.BYTES;
+    }
+
+    public double estimatedFalsePositiveRate() {
+        return Math.pow((double) bits.bitCount() / numBits, numHashFunctions);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.email.filter.memory", this, CustomerEmailBloomFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("customer.email.filter.hash.functions", () -> numHashFunctions)
+                .register(registry);
+        Gauge.builder("customer.email.filter.false.positive.rate.configured", () -> falsePositiveRate)
+                .register(registry);
+        Gauge.builder("customer.email.filter.false.positive.rate.estimated", this, CustomerEmailBloomFilter::estimatedFalsePositiveRate)
+                .register(registry);
+        Gauge.builder("customer.email.filter.stale.entries", staleEntries, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("customer.email.filter.checks", negativeChecks, LongAdder::sum)
+                .tag("result", "negative")
+                .register(registry);
+        FunctionCounter.builder("customer.email.filter.checks", positiveChecks, LongAdder::sum)
+                .tag("result", "positive")
+                .register(registry);
+    }
+
+    private void put(BitArray target, String email) {
+        long hash64 = hash(email);
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            target.set(index(hash1, hash2, i));
+        }
+    }
+
+    private int index(int hash1, int hash2, int i) {
+        int combinedHash = hash1 + i * hash2;
+        if (combinedHash < 0) {
+            combinedHash = ~combinedHash;
+        }
+        return combinedHash % numBits;
+    }
+
+    private static long hash(String email) {
+        //FNV-1a over the UTF-8 bytes, finished with the murmur3 64-bit mixer
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class BitArray {
+        private final AtomicLongArray data;
+        private final LongAdder bitCount = new LongAdder();
+
+        BitArray(int numBits) {
+            this.data = new AtomicLongArray((numBits + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        boolean get(int index) {
+            return (data.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        void set(int index) {
+            int wordIndex = index >>> 6;
+            long mask = 1L << index;
+            long word;
+            do {
+                word = data.get(wordIndex);
+                if ((word & mask) != 0) {
+                    return;
+                }
+            } while (!data.compareAndSet(wordIndex, word, word | mask));
+            bitCount.increment();
+        }
+
+        long bitCount() {
+            return bitCount.sum();
+        }
+
+        int words() {
+            return data.length();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.javaexample.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Locale;
+
+//the customer as the change left it, null once deleted; the version orders the events of one customer
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CustomerEvent(CustomerEventCursor id,
+                            Type type,
+                            long customerId,
+                            long version,
+                            Customer customer,
+                            Instant occurredAt) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED;
+
+        static Type parse(String type) {
+            return valueOf(type.toUpperCase(Locale.ROOT));
+        }
+
+        public String eventName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.RequestValidationException;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+//a position in the customer_event outbox, handed out as "<tx>-<id>" in the SSE id so a client resumes after it
+public record CustomerEventCursor(long tx, long id) implements Comparable<CustomerEventCursor> {
+
+    public static final CustomerEventCursor START = new CustomerEventCursor(0, 0);
+
+    public static CustomerEventCursor parse(String cursor) {
+        int separator = cursor.indexOf('-');
+        try {
+            if (separator > 0) {
+                long tx = Long.parseLong(cursor.substring(0, separator));
+                long id = Long.parseLong(cursor.substring(separator + 1));
+                if (tx >= 0 && id >= 0) {
+                    return new CustomerEventCursor(tx, id);
+                }
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new RequestValidationException("Invalid customer event id %s".formatted(cursor));
+    }
+
+    @Override
+    public int compareTo(CustomerEventCursor other) {
+        int byTx = Long.compare(tx, other.tx);
+        return byTx != 0 ? byTx : Long.compare(id, other.id);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        return tx + "-" + id;
+    }
+}
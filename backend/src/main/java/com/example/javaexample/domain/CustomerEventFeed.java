@@ -0,0 +1,295 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.ResourceGoneException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+//pushes the customer_event outbox to SSE subscribers; a single thread listens for the outbox notifications and
+//reads each page once for all subscribers at the same position, so live subscribers cost one query per wake-up
+//however many there are, and a resuming one catches up a page per wake-up until it joins them. the listener only
+//fills a bounded buffer per subscriber, each buffer is written out on a thread of its own, so a slow client holds
+//up nobody else: it is read for no more than it has room for, and dropped once its buffer stays full too long
+@Component
+@Profile("!reactive")
+public class CustomerEventFeed implements SmartLifecycle, MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerEventFeed.class);
+    //idle streams get a comment now and then, so proxies keep them open and gone clients are noticed
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    private static final Duration PRUNE_INTERVAL = Duration.ofHours(1);
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("").build();
+
+    private final CustomerEventRepository customerEventRepository;
+    private final int pageSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final int bufferSize;
+    private final Duration stallTimeout;
+    private final Executor executor;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private volatile Thread listener;
+    private Instant lastHeartbeat = Instant.now();
+    private Instant lastPrune = Instant.EPOCH;
+
+    @Autowired
+    public CustomerEventFeed(CustomerEventRepository customerEventRepository,
+                             @Value("${customer.events.page-size:500}") int pageSize,
+                             @Value("${customer.events.poll-interval:1s}") Duration pollInterval,
+                             @Value("${customer.events.retention:7d}") Duration retention,
+                             @Value("${customer.events.buffer-size:1000}") int bufferSize,
+                             @Value("${customer.events.stall-timeout:30s}") Duration stallTimeout) {
+        this(customerEventRepository, pageSize, pollInterval, retention, bufferSize, stallTimeout,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    CustomerEventFeed(CustomerEventRepository customerEventRepository, int pageSize, Duration pollInterval,
+                      Duration retention, int bufferSize, Duration stallTimeout, Executor executor) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("page-size must be positive");
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("buffer-size must be positive");
+        }
+        this.customerEventRepository = customerEventRepository;
+        this.pageSize = pageSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.bufferSize = bufferSize;
+        this.stallTimeout = stallTimeout;
+        this.executor = executor;
+    }
+
+    //without a position the stream starts at the latest event; a new subscriber is served from the next wake-up
+    public SseEmitter subscribe(CustomerEventCursor after) {
+        return subscribe(after, new SseEmitter());
+    }
+
+    SseEmitter subscribe(CustomerEventCursor after, SseEmitter emitter) {
+        if (after != null && after.compareTo(customerEventRepository.findHorizon()) < 0) {
+            throw new ResourceGoneException(
+                    "Customer events after %s have been pruned, sync again from /api/v1/customers/changes".formatted(after));
+        }
+        Subscription subscription = new Subscription(emitter, after == null ? customerEventRepository.findLatestCursor() : after);
+        //commits the response, so the client knows it is subscribed before the first change
+        try {
+            emitter.send(HEARTBEAT);
+        } catch (IOException | IllegalStateException e) {
+            return emitter;
+        }
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        return emitter;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = Thread.ofPlatform()
+                .name("customer-event-listener")
+                .daemon(true)
+                .start(this::listen);
+    }
+
+    //open streams end first, graceful shutdown would otherwise wait on them as in-flight requests
+    @Override
+    public void stop() {
+        running = false;
+        subscriptions.forEach(subscription -> subscription.emitter().complete());
+        subscriptions.clear();
+        Thread current = listener;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join(pollInterval.multipliedBy(2).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        listener = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return listener != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.events.subscribers", subscriptions, Set::size)
+                .register(registry);
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                customerEventRepository.listen(pollInterval, () -> running, this::wakeUp);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Listening for customer events failed, listening again in {}", pollInterval, e);
+                try {
+                    Thread.sleep(pollInterval);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void wakeUp() {
+        dispatch();
+        Instant now = Instant.now();
+        dropStalledSubscribers(now);
+        if (now.isAfter(lastHeartbeat.plus(HEARTBEAT_INTERVAL))) {
+            lastHeartbeat = now;
+            subscriptions.forEach(Subscription::heartbeat);
+        }
+        if (now.isAfter(lastPrune.plus(PRUNE_INTERVAL))) {
+            lastPrune = now;
+            int pruned = customerEventRepository.deleteEventsBefore(now.minus(retention));
+            LOGGER.debug("Pruned {} customer events older than {}", pruned, retention);
+        }
+    }
+
+    void dropStalledSubscribers(Instant now) {
+        subscriptions.stream()
+                .filter(subscription -> subscription.stalledSince(now.minus(stallTimeout)))
+                .forEach(Subscription::drop);
+    }
+
+    //pages until every subscriber has been handed all settled events or has a full buffer; a subscriber takes what it
+    //has room for from its group's page and falls out of the group with the rest, to be read for on its own
+    void dispatch() {
+        boolean behind = true;
+        while (behind) {
+            behind = false;
+            Map<CustomerEventCursor, List<Subscription>> byCursor = subscriptions.stream()
+                    .filter(subscription -> subscription.room() > 0)
+                    .collect(Collectors.groupingBy(Subscription::cursor));
+            for (var entry : byCursor.entrySet()) {
+                List<CustomerEvent> events = customerEventRepository.findEventsAfter(entry.getKey(), pageSize);
+                if (events.isEmpty()) {
+                    continue;
+                }
+                entry.getValue().forEach(subscription -> subscription.enqueue(events));
+                behind |= events.size() == pageSize;
+            }
+        }
+    }
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        //the position of the last event buffered, which is where the next read for this subscriber starts
+        private volatile CustomerEventCursor cursor;
+        private volatile Instant fullSince;
+        private volatile boolean gone;
+
+        private Subscription(SseEmitter emitter, CustomerEventCursor cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        private SseEmitter emitter() {
+            return emitter;
+        }
+
+        private CustomerEventCursor cursor() {
+            return cursor;
+        }
+
+        private int room() {
+            return buffer.remainingCapacity();
+        }
+
+        //only the listener adds events, so room only grows while this runs
+        private void enqueue(List<CustomerEvent> events) {
+            for (CustomerEvent event : events.subList(0, Math.min(events.size(), room()))) {
+                buffer.add(SseEmitter.event()
+                        .id(event.id().toString())
+                        .name(event.type().eventName())
+                        .data(event)
+                        .build());
+                cursor = event.id();
+            }
+            if (buffer.remainingCapacity() == 0 && fullSince == null) {
+                fullSince = Instant.now();
+            }
+            drain();
+        }
+
+        //a full buffer already has something on its way to the client
+        private void heartbeat() {
+            if (buffer.offer(HEARTBEAT)) {
+                drain();
+            }
+        }
+
+        private boolean stalledSince(Instant instant) {
+            Instant full = fullSince;
+            return full != null && full.isBefore(instant);
+        }
+
+        //the emitter is completed on the executor, a send blocked on the client may hold it
+        private void drop() {
+            LOGGER.info("Dropping a customer event subscriber that has not read anything for {}", stallTimeout);
+            gone = true;
+            subscriptions.remove(this);
+            buffer.clear();
+            executor.execute(emitter::complete);
+        }
+
+        private void drain() {
+            if (gone || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    Set<ResponseBodyEmitter.DataWithMediaType> event;
+                    while (!gone && (event = buffer.poll()) != null) {
+                        emitter.send(event);
+                        fullSince = null;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    //the client is gone, the container completes the emitter
+                    gone = true;
+                    subscriptions.remove(this);
+                } finally {
+                    draining.set(false);
+                }
+                //an event buffered after the last poll but before the flag was cleared found a drain still running
+                if (!buffer.isEmpty()) {
+                    drain();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.javaexample.domain;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+@Repository
+public class CustomerEventRepository {
+
+    //events of transactions that may still be running, or that committed while older ones still run, are held back
+    //until those end; see V8__Add_Customer_Event_Outbox.sql
+    private static final String SETTLED = "tx < pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final RowMapper<CustomerEvent> EVENT_MAPPER = (rs, rowNum) -> {
+        CustomerEvent.Type type = CustomerEvent.Type.parse(rs.getString("type"));
+        long customerId = rs.getLong("customer_id");
+        long version = rs.getLong("version");
+        Customer customer = null;
+        if (type != CustomerEvent.Type.DELETED) {
+            customer = new Customer(customerId, rs.getString("name"), rs.getString("email"), rs.getInt("age"));
+            customer.setVersion(version);
+        }
+        return new CustomerEvent(
+                new CustomerEventCursor(rs.getLong("tx"), rs.getLong("id")),
+                type,
+                customerId,
+                version,
+                customer,
+                rs.getTimestamp("occurred_at").toInstant()
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<CustomerEvent> findEventsAfter(CustomerEventCursor cursor, int limit) {
+        var sql = """
+                SELECT tx, id, type, customer_id, name, email, age, version, occurred_at
+                FROM customer_event
+                WHERE (tx, id) > (?, ?) AND %s
+                ORDER BY tx, id
+                LIMIT ?
+                """.formatted(SETTLED);
+        return jdbcTemplate.query(sql, EVENT_MAPPER, cursor.tx(), cursor.id(), limit);
+    }
+
+    //where a client that wants no history starts
+    public CustomerEventCursor findLatestCursor() {
+        var sql = """
+                SELECT tx, id
+                FROM customer_event
+                WHERE %s
+                ORDER BY tx DESC, id DESC
+                LIMIT 1
+                """.formatted(SETTLED);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new CustomerEventCursor(rs.getLong("tx"), rs.getLong("id")))
+                .stream()
+                .findFirst()
+                .orElse(CustomerEventCursor.START);
+    }
+
+    //moves the horizon up to the newest pruned event in the same statement, see V11__Add_Customer_Event_Horizon.sql
+    public int deleteEventsBefore(Instant instant) {
+        var sql = """
+                WITH pruned AS (
+                    DELETE FROM customer_event
+                    WHERE occurred_at < ?
+                    RETURNING tx, id
+                ), newest AS (
+                    SELECT tx, id FROM pruned ORDER BY tx DESC, id DESC LIMIT 1
+                ), horizon AS (
+                    UPDATE customer_event_horizon h
+                    SET tx = newest.tx, event_id = newest.id
+                    FROM newest
+                    WHERE (newest.tx, newest.id) > (h.tx, h.event_id)
+                )
+                SELECT count(*) FROM pruned
+                """;
+        return jdbcTemplate.queryForObject(sql, Integer.class, Timestamp.from(instant));
+    }
+
+    //a position before this one may have missed pruned events
+    public CustomerEventCursor findHorizon() {
+        return jdbcTemplate.queryForObject("SELECT tx, event_id FROM customer_event_horizon",
+                (rs, rowNum) -> new CustomerEventCursor(rs.getLong("tx"), rs.getLong("event_id")));
+    }
+
+    //holds a pooled connection for as long as it listens; onWakeUp runs after every notification and at least once
+    //per timeout, so events held back by a long transaction are still picked up
+    public void listen(Duration timeout, BooleanSupplier listening, Runnable onWakeUp) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            PGConnection pgConnection = con.unwrap(PGConnection.class);
+            try (Statement statement = con.createStatement()) {
+                statement.execute("LISTEN customer_event");
+            }
+            try {
+                onWakeUp.run();
+                while (listening.getAsBoolean()) {
+                    pgConnection.getNotifications((int) timeout.toMillis());
+                    onWakeUp.run();
+                }
+            } finally {
+                //the connection goes back to the pool, where nobody would drain its notifications
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("UNLISTEN *");
+                }
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.RequestValidationException;
+import io.r2dbc.spi.Readable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public enum CustomerField {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email"),
+    AGE("age");
+
+    public static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    private final String column;
+
+    CustomerField(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    //id is always part of a projection since it is the paging cursor
+    public static Set<CustomerField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        EnumSet<CustomerField> parsed = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String column = name.trim();
+            parsed.add(Arrays.stream(values())
+                    .filter(field -> field.column.equalsIgnoreCase(column))
+                    .findFirst()
+                    .orElseThrow(() -> new RequestValidationException(
+                            "Unknown customer field %s, expected one of %s".formatted(column, columns(ALL)))));
+        }
+        return parsed.size() == ALL.size() ? ALL : Collections.unmodifiableSet(parsed);
+    }
+
+    //enum order, so it lines up with the positions read by CustomerProjectionRowMapper
+    public static String columns(Set<CustomerField> fields) {
+        return fields.stream()
+                .sorted()
+                .map(CustomerField::column)
+                .collect(Collectors.joining(", "));
+    }
+
+    public static Customer project(Customer customer, Set<CustomerField> fields) {
+        if (fields.containsAll(ALL)) {
+            return customer;
+        }
+        Customer projection = new Customer();
+        fields.forEach(field -> field.set(projection, field.get(customer)));
+        return projection;
+    }
+
+    Object get(Customer customer) {
+        return switch (this) {
+            case ID -> customer.getId();
+            case NAME -> customer.getName();
+            case EMAIL -> customer.getEmail();
+            case AGE -> customer.getAge();
+        };
+    }
+
+    void set(Customer customer, Object value) {
+        switch (this) {
+            case ID -> customer.setId((Long) value);
+            case NAME -> customer.setName((String) value);
+            case EMAIL -> customer.setEmail((String) value);
+            case AGE -> customer.setAge((Integer) value);
+        }
+    }
+
+    Object read(ResultSet rs, int columnIndex) throws SQLException {
+        return switch (this) {
+            case ID -> rs.getLong(columnIndex);
+            case NAME, EMAIL -> rs.getString(columnIndex);
+            case AGE -> rs.getInt(columnIndex);
+        };
+    }
+
+    Object read(Readable row, int index) {
+        return switch (this) {
+            case ID -> row.get(index, Long.class);
+            case NAME, EMAIL -> row.get(index, String.class);
+            case AGE -> row.get(index, Integer.class);
+        };
+    }
+}
@@ -0,0 +1,3 @@
+package com.example.javaexample.domain;
+
+public record CustomerImportResult(long rows, long inserted, long skipped) {}
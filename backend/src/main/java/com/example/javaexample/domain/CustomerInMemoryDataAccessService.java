@@ -1,69 +1,252 @@
 package com.example.javaexample.domain;
 
-import org.springframework.stereotype.Repository;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-
-@Repository("inMemoryRepository")
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+//not a bean: without versions, patches and a change log it cannot back CustomerService, it is kept to measure
+//the database backed stores against in the benchmarks and tests
 public class CustomerInMemoryDataAccessService implements CustomerDAO{
 
-    private static List<Customer> customers;
+    private static final int LOCK_STRIPES = 64;
+
+    //stored customers are private copies and are never mutated in place
+    private final ConcurrentNavigableMap<Long, Customer> customers = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    //striped counters, so writers of the same age do not contend on a single value
+    private final ConcurrentNavigableMap<Integer, LongAdder> customersByAge = new ConcurrentSkipListMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final Object[] rowLocks = new Object[LOCK_STRIPES];
+    //writers share the read lock so they only exclude snapshot readers, not each other
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
 
-    static {
-        customers = new ArrayList<>();
+    public CustomerInMemoryDataAccessService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            rowLocks[i] = new Object();
+        }
 
         Customer alex = new Customer(
-                1L,
                 "Alex",
                 "alex@gmail.com",
                 21
         );
 
         Customer jasmine = new Customer(
-                2L,
                 "Jasmine",
                 "jasmine@gmail.com",
                 19
         );
 
-        customers.add(alex);
-        customers.add(jasmine);
+        insertCustomer(alex);
+        insertCustomer(jasmine);
     }
 
     @Override
     public List<Customer> getAllCustomers() {
-        return customers;
+        Lock lock = snapshotLock.writeLock();
+        lock.lock();
+        try {
+            return customers.values().stream()
+                    .map(CustomerInMemoryDataAccessService::copyOf)
+                    .toList();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit) {
+        return customers.tailMap(after, false)
+                .values()
+                .stream()
+                .limit(limit)
+                .map(CustomerInMemoryDataAccessService::copyOf)
+                .toList();
+    }
+
+    @Override
+    public void forEachCustomer(Consumer<Customer> consumer) {
+        //weakly consistent like a cursor, so a slow consumer never blocks writers
+        customers.values().forEach(customer -> consumer.accept(copyOf(customer)));
     }
 
     @Override
     public Optional<Customer> getCustomerById(Long id) {
-        return customers.stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(customers.get(id))
+                .map(CustomerInMemoryDataAccessService::copyOf);
+    }
 
+    @Override
+    public List<Customer> searchCustomers(CustomerSearchCriteria criteria, Long after, int limit) {
+        CustomerSearchIndex.Candidates candidates = searchIndex.candidates(criteria, customers.navigableKeySet());
+        List<Customer> found = new ArrayList<>(limit);
+        Long id = after;
+        while (found.size() < limit && (id = candidates.after(id)) != null) {
+            Customer customer = customers.get(id);
+            //the grams only narrow the candidates down, the stored customer decides
+            if (customer != null && criteria.matches(customer)) {
+                found.add(copyOf(customer));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public CustomerStats getCustomerStats() {
+        //each age is read on its own, so concurrent writes may be seen in part, as in a sum over a weakly consistent view
+        SortedMap<Integer, Long> counts = new TreeMap<>();
+        customersByAge.forEach((age, customers) -> counts.put(age, customers.sum()));
+        return CustomerStats.of(counts);
     }
 
     @Override
     public void insertCustomer(Customer customer) {
-        customers.add(customer);
+        if (!insertCustomerIfAbsent(customer)) {
+            throw duplicateEmail(customer.getEmail());
+        }
+    }
+
+    @Override
+    public boolean insertCustomerIfAbsent(Customer customer) {
+        return write(() -> insert(customer));
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> newCustomers) {
+        write(() -> {
+            List<Customer> inserted = new ArrayList<>(newCustomers.size());
+            for (Customer customer : newCustomers) {
+                if (!insert(customer)) {
+                    //all or nothing, like the batch insert transaction
+                    inserted.forEach(rolledBack -> delete(rolledBack.getId()));
+                    throw duplicateEmail(customer.getEmail());
+                }
+                inserted.add(customer);
+            }
+            return null;
+        });
     }
 
     @Override
     public boolean existPersonWithEmail(String email) {
-        return customers.stream().anyMatch(customer -> customer.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public void deleteCustomer(Customer customer) {
-        customers.remove(customer);
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(idsByEmail::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public boolean deleteCustomerById(Long id) {
+        return write(() -> delete(id));
     }
 
+    @Override
+    public boolean updateCustomer(Customer customer) {
+        Long id = customer.getId();
+        return write(() -> {
+            synchronized (rowLock(id)) {
+                Customer current = customers.get(id);
+                if (current == null) {
+                    return false;
+                }
+                String email = customer.getEmail();
+                boolean emailChanged = !current.getEmail().equals(email);
+                if (emailChanged && idsByEmail.putIfAbsent(email, id) != null) {
+                    throw duplicateEmail(email);
+                }
+                Customer updated = copyOf(customer);
+                customers.put(id, updated);
+                searchIndex.update(current, updated);
+                if (!current.getAge().equals(updated.getAge())) {
+                    countAge(updated.getAge(), 1);
+                    countAge(current.getAge(), -1);
+                }
+                if (emailChanged) {
+                    idsByEmail.remove(current.getEmail(), id);
+                }
+                return true;
+            }
+        });
+    }
+
+    private boolean insert(Customer customer) {
+        long id = idSequence.incrementAndGet();
+        //the email index is the uniqueness constraint: whoever claims the email first wins
+        if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null) {
+            return false;
+        }
+        customer.setId(id);
+        Customer inserted = copyOf(customer);
+        synchronized (rowLock(id)) {
+            customers.put(id, inserted);
+            searchIndex.update(null, inserted);
+            countAge(inserted.getAge(), 1);
+        }
+        return true;
+    }
+
+    private boolean delete(Long id) {
+        synchronized (rowLock(id)) {
+            Customer removed = customers.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            idsByEmail.remove(removed.getEmail(), id);
+            searchIndex.update(removed, null);
+            countAge(removed.getAge(), -1);
+            return true;
+        }
+    }
+
+    private void countAge(Integer age, int delta) {
+        customersByAge.computeIfAbsent(age, ignored -> new LongAdder()).add(delta);
+    }
 
+    private <T> T write(Supplier<T> mutation) {
+        Lock lock = snapshotLock.readLock();
+        lock.lock();
+        try {
+            return mutation.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object rowLock(Long id) {
+        return rowLocks[(int) (id & (LOCK_STRIPES - 1))];
+    }
+
+    private static DuplicateKeyException duplicateEmail(String email) {
+        return new DuplicateKeyException("Customer with email %s already exist".formatted(email));
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge()
+        );
+    }
 }
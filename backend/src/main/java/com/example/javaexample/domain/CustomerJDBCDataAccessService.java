@@ -1,13 +1,52 @@
 package com.example.javaexample.domain;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository("jdbcTemplateRepository")
-public class CustomerJDBCDataAccessService implements CustomerDAO{
+public class CustomerJDBCDataAccessService implements CustomerVersionedDAO {
+
+    static final int STREAM_FETCH_SIZE = 1000;
+    static final int INSERT_BATCH_SIZE = 1000;
+    private static final RowMapper<CustomerVersion> CUSTOMER_VERSION_ROW_MAPPER = (rs, rowNum) -> new CustomerVersion(
+            rs.getLong("version"),
+            rs.getTimestamp("updated_at").toInstant()
+    );
+
+    //both halves only read up to the oldest transaction still running, see V9__Add_Customer_Change_Sequence.sql
+    static final String CHANGES_SQL = """
+            SELECT change_tx, change_seq, id, name, email, age, version, updated_at, FALSE AS deleted
+            FROM customer
+            WHERE (change_tx, change_seq) > (?, ?) AND change_tx < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+            UNION ALL
+            SELECT change_tx, change_seq, customer_id, NULL, NULL, NULL, NULL, deleted_at, TRUE
+            FROM customer_tombstone
+            WHERE (change_tx, change_seq) > (?, ?) AND change_tx < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+            ORDER BY change_tx, change_seq
+            LIMIT ?
+            """;
 
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
@@ -19,22 +58,185 @@ public class CustomerJDBCDataAccessService implements CustomerDAO{
 
     @Override
     public List<Customer> getAllCustomers() {
-        return jdbcTemplate.query("SELECT id, name, email, age FROM customer", customerRowMapper);
+        return jdbcTemplate.query("SELECT id, name, email, age, version, updated_at FROM customer", customerRowMapper);
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit) {
+        return jdbcTemplate.query("SELECT id, name, email, age, version, updated_at FROM customer WHERE id > ? ORDER BY id LIMIT ?",
+                customerRowMapper, after, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Consumer<Customer> consumer) {
+        stream("SELECT id, name, email, age, version, updated_at FROM customer", customerRowMapper, consumer);
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields) {
+        return jdbcTemplate.query("SELECT " + CustomerField.columns(fields) + " FROM customer WHERE id > ? ORDER BY id LIMIT ?",
+                new CustomerProjectionRowMapper(fields), after, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> consumer) {
+        stream("SELECT " + CustomerField.columns(fields) + " FROM customer", new CustomerProjectionRowMapper(fields), consumer);
     }
 
     @Override
     public Optional<Customer> getCustomerById(Long id) {
-        return jdbcTemplate.query("SELECT id, name, email, age FROM customer WHERE id = ?", customerRowMapper, id)
+        return jdbcTemplate.query("SELECT id, name, email, age, version, updated_at FROM customer WHERE id = ?", customerRowMapper, id)
                 .stream()
                 .findFirst();
     }
 
+    @Override
+    public Optional<CustomerVersion> getCustomerVersion(Long id) {
+        return jdbcTemplate.query("SELECT version, updated_at FROM customer WHERE id = ?", CUSTOMER_VERSION_ROW_MAPPER, id)
+                .stream()
+                .findFirst();
+    }
+
+    //the sum over the stripes writers bump, see V10__Stripe_Customer_Table_Version.sql
+    @Override
+    public CustomerVersion getTableVersion() {
+        return jdbcTemplate.queryForObject("SELECT sum(version) AS version, max(updated_at) AS updated_at FROM customer_table_version", CUSTOMER_VERSION_ROW_MAPPER);
+    }
+
+    //both sides are read from their (change_tx, change_seq) index and merged, so a sync costs what changed since its
+    //token; the condition on change_tx holds back changes of transactions that may still be running, or that
+    //committed while older ones still run, see V8__Add_Customer_Event_Outbox.sql
+    @Override
+    public List<CustomerChange> getChangesSince(CustomerChangeToken since, int limit) {
+        return jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> new CustomerChange(
+                new CustomerChangeToken(rs.getLong("change_tx"), rs.getLong("change_seq")),
+                rs.getLong("id"),
+                rs.getBoolean("deleted") ? null : customerRowMapper.mapRow(rs, rowNum)
+        ), since.tx(), since.seq(), since.tx(), since.seq(), limit);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(CustomerSearchCriteria criteria, Long after, int limit) {
+        List<Object> args = new ArrayList<>();
+        args.add(after);
+        args.addAll(searchParameters(criteria).values());
+        args.add(limit);
+        return jdbcTemplate.query("SELECT id, name, email, age, version, updated_at FROM customer WHERE id > ?"
+                        + searchConditions(criteria, column -> column, parameter -> "?")
+                        + " ORDER BY id LIMIT ?",
+                customerRowMapper, args.toArray());
+    }
+
+    //only the given criteria become conditions, so each search is planned against the indexes it can use;
+    //the trigram indexes are built on lower(column)
+    static String searchConditions(CustomerSearchCriteria criteria, UnaryOperator<String> column, UnaryOperator<String> parameter) {
+        StringBuilder conditions = new StringBuilder();
+        if (criteria.name() != null) {
+            conditions.append(" AND lower(%s) LIKE %s ESCAPE '\\'".formatted(column.apply("name"), parameter.apply("name")));
+        }
+        if (criteria.email() != null) {
+            conditions.append(" AND lower(%s) LIKE %s ESCAPE '\\'".formatted(column.apply("email"), parameter.apply("email")));
+        }
+        if (criteria.minAge() != null) {
+            conditions.append(" AND %s >= %s".formatted(column.apply("age"), parameter.apply("minAge")));
+        }
+        if (criteria.maxAge() != null) {
+            conditions.append(" AND %s <= %s".formatted(column.apply("age"), parameter.apply("maxAge")));
+        }
+        return conditions.toString();
+    }
+
+    //in the order of the conditions
+    static Map<String, Object> searchParameters(CustomerSearchCriteria criteria) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (criteria.name() != null) {
+            parameters.put("name", criteria.likePattern(criteria.name()));
+        }
+        if (criteria.email() != null) {
+            parameters.put("email", criteria.likePattern(criteria.email()));
+        }
+        if (criteria.minAge() != null) {
+            parameters.put("minAge", criteria.minAge());
+        }
+        if (criteria.maxAge() != null) {
+            parameters.put("maxAge", criteria.maxAge());
+        }
+        return parameters;
+    }
+
+    @Override
+    public CustomerStats getCustomerStats() {
+        SortedMap<Integer, Long> customersByAge = new TreeMap<>();
+        jdbcTemplate.query("SELECT age, customers FROM customer_age_stats WHERE customers > 0",
+                (RowCallbackHandler) rs -> customersByAge.put(rs.getInt("age"), rs.getLong("customers")));
+        return CustomerStats.of(customersByAge);
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         var sql = "INSERT INTO customer(name, email, age) VALUES(?, ?, ?)";
         int update = jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge());
     }
 
+    @Override
+    public boolean insertCustomerIfAbsent(Customer customer) {
+        var sql = "INSERT INTO customer(name, email, age) VALUES(?, ?, ?) ON CONFLICT (email) DO NOTHING RETURNING id";
+        List<Long> ids = jdbcTemplate.query(sql, new SingleColumnRowMapper<>(Long.class),
+                customer.getName(), customer.getEmail(), customer.getAge());
+        if (ids.isEmpty()) {
+            return false;
+        }
+        customer.setId(ids.get(0));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void insertCustomers(List<Customer> customers) {
+        //with reWriteBatchedInserts pgjdbc folds each batch into multi-row INSERTs
+        var sql = "INSERT INTO customer(name, email, age) VALUES(?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, customers, INSERT_BATCH_SIZE, (ps, customer) -> {
+            ps.setString(1, customer.getName());
+            ps.setString(2, customer.getEmail());
+            ps.setInt(3, customer.getAge());
+        });
+    }
+
+    @Override
+    public Set<String> insertCustomersIfAbsent(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return Set.of();
+        }
+        //the whole group is one statement and one round trip, however many customers it holds
+        var sql = """
+                INSERT INTO customer(name, email, age)
+                SELECT name, email, age
+                FROM unnest(?::text[], ?::text[], ?::int[]) WITH ORDINALITY AS batch(name, email, age, position)
+                ORDER BY position
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id, email""";
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(sql);
+            statement.setArray(1, con.createArrayOf("text", customers.stream().map(Customer::getName).toArray()));
+            statement.setArray(2, con.createArrayOf("text", customers.stream().map(Customer::getEmail).toArray()));
+            statement.setArray(3, con.createArrayOf("int4", customers.stream().map(Customer::getAge).toArray()));
+            return statement;
+        }, (RowCallbackHandler) rs -> ids.put(rs.getString("email"), rs.getLong("id")));
+        for (Customer customer : customers) {
+            Long id = ids.remove(customer.getEmail());
+            if (id != null) {
+                customer.setId(id);
+            }
+        }
+        return customers.stream()
+                .filter(customer -> customer.getId() != null)
+                .map(Customer::getEmail)
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public boolean existPersonWithEmail(String email) {
         Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM customer WHERE email = ?", Integer.class, email);
@@ -42,16 +244,80 @@ public class CustomerJDBCDataAccessService implements CustomerDAO{
     }
 
     @Override
-    public void deleteCustomer(Customer customer) {
-        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customer.getId());
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        List<String> existing = jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement("SELECT email FROM customer WHERE email = ANY (?)");
+            statement.setArray(1, con.createArrayOf("text", emails.toArray()));
+            return statement;
+        }, new SingleColumnRowMapper<>(String.class));
+        return new HashSet<>(existing);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        jdbcTemplate.update("UPDATE customer SET name = ?, email = ?, age = ? WHERE id = ?",
+    public boolean deleteCustomerById(Long id) {
+        return jdbcTemplate.update("DELETE FROM customer WHERE id = ?", id) > 0;
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer) {
+        return jdbcTemplate.update("UPDATE customer SET name = ?, email = ?, age = ? WHERE id = ?",
                 customer.getName(),
                 customer.getEmail(),
                 customer.getAge(),
-                customer.getId());
+                customer.getId()) > 0;
+    }
+
+    @Override
+    public CustomerUpdateResult patchCustomer(Customer customer, Long expectedVersion) {
+        List<CustomerField> columns = patchColumns(customer);
+        List<Object> args = new ArrayList<>();
+        columns.forEach(field -> args.add(field.get(customer)));
+        args.add(customer.getId());
+        if (expectedVersion != null) {
+            args.add(expectedVersion);
+        }
+        args.add(customer.getId());
+        return jdbcTemplate.queryForObject(patchSql(columns, expectedVersion != null), (rs, rowNum) -> {
+            long version = rs.getLong("version");
+            if (!rs.wasNull()) {
+                return CustomerUpdateResult.updated(new CustomerVersion(version, rs.getTimestamp("updated_at").toInstant()));
+            }
+            return rs.getBoolean("found") ? CustomerUpdateResult.versionMismatch() : CustomerUpdateResult.notFound();
+        }, args.toArray());
+    }
+
+    static List<CustomerField> patchColumns(Customer customer) {
+        return Stream.of(CustomerField.NAME, CustomerField.EMAIL, CustomerField.AGE)
+                .filter(field -> field.get(customer) != null)
+                .toList();
+    }
+
+    //one round trip: the update and, when it matched nothing, whether the row exists at all;
+    //the EXISTS reads the statement's snapshot, so a row that lost the race still counts as found
+    static String patchSql(List<CustomerField> columns, boolean checkVersion) {
+        return columns.stream()
+                .map(field -> field.column() + " = ?")
+                .collect(Collectors.joining(", ", "WITH updated AS (UPDATE customer SET ", " WHERE id = ?"))
+                + (checkVersion ? " AND version = ?" : "")
+                + " RETURNING version, updated_at)"
+                + " SELECT updated.version, updated.updated_at, EXISTS (SELECT 1 FROM customer WHERE id = ?) AS found"
+                + " FROM (VALUES (1)) AS one LEFT JOIN updated ON TRUE";
+    }
+
+    private void stream(String sql, RowMapper<Customer> rowMapper, Consumer<Customer> consumer) {
+        //pgjdbc only uses a server-side cursor when autocommit is off and a fetch size is set
+        RowCallbackHandler rowCallbackHandler = rs -> consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+        jdbcTemplate.query(con -> {
+            PreparedStatement statement = con.prepareStatement(
+                    sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY
+            );
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rowCallbackHandler);
     }
 }
@@ -1,17 +1,37 @@
 package com.example.javaexample.domain;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository("jpaRepository")
-public class CustomerJPADataAccessService implements CustomerDAO{
+public class CustomerJPADataAccessService implements CustomerVersionedDAO {
+
+    static final int FLUSH_INTERVAL = 1000;
 
     private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository, EntityManager entityManager) {
         this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
     }
 
 
@@ -20,29 +40,207 @@ public class CustomerJPADataAccessService implements CustomerDAO{
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> getCustomers(Long after, int limit) {
+        return customerRepository.findByIdGreaterThanOrderById(after, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Consumer<Customer> consumer) {
+        try (Stream<Customer> customers = customerRepository.streamAllBy()) {
+            customers.forEach(customer -> {
+                consumer.accept(customer);
+                //keep the persistence context from growing with the result set
+                entityManager.detach(customer);
+            });
+        }
+    }
+
+    @Override
+    public List<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields) {
+        List<CustomerField> columns = fields.stream().sorted().toList();
+        return entityManager.createQuery(select(columns) + " WHERE c.id > :after ORDER BY c.id", Tuple.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> toCustomer(tuple, columns))
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCustomer(Set<CustomerField> fields, Consumer<Customer> consumer) {
+        //tuples are not managed, so there is nothing to detach
+        List<CustomerField> columns = fields.stream().sorted().toList();
+        try (Stream<Tuple> tuples = entityManager.createQuery(select(columns), Tuple.class)
+                .setHint(HINT_FETCH_SIZE, CustomerJDBCDataAccessService.STREAM_FETCH_SIZE)
+                .getResultStream()) {
+            tuples.forEach(tuple -> consumer.accept(toCustomer(tuple, columns)));
+        }
+    }
+
     @Override
     public Optional<Customer> getCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
+    @Override
+    public Optional<CustomerVersion> getCustomerVersion(Long id) {
+        return customerRepository.findVersionById(id);
+    }
+
+    @Override
+    public CustomerVersion getTableVersion() {
+        Object[] row = (Object[]) entityManager.createNativeQuery("SELECT sum(version) AS version, max(updated_at) AS updated_at FROM customer_table_version")
+                .unwrap(NativeQuery.class)
+                .addScalar("version", Long.class)
+                .addScalar("updated_at", Instant.class)
+                .getSingleResult();
+        return new CustomerVersion((Long) row[0], (Instant) row[1]);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(CustomerSearchCriteria criteria, Long after, int limit) {
+        TypedQuery<Customer> query = entityManager.createQuery("SELECT c FROM Customer c WHERE c.id > :after"
+                        + CustomerJDBCDataAccessService.searchConditions(criteria, column -> "c." + column, parameter -> ":" + parameter)
+                        + " ORDER BY c.id", Customer.class)
+                .setParameter("after", after)
+                .setMaxResults(limit);
+        CustomerJDBCDataAccessService.searchParameters(criteria).forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    @Override
+    public CustomerStats getCustomerStats() {
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT age, customers FROM customer_age_stats WHERE customers > 0")
+                .unwrap(NativeQuery.class)
+                .addScalar("age", Integer.class)
+                .addScalar("customers", Long.class)
+                .getResultList();
+        SortedMap<Integer, Long> customersByAge = new TreeMap<>();
+        rows.forEach(row -> customersByAge.put((Integer) row[0], (Long) row[1]));
+        return CustomerStats.of(customersByAge);
+    }
+
+    @Override
+    public List<CustomerChange> getChangesSince(CustomerChangeToken since, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(CustomerJDBCDataAccessService.CHANGES_SQL)
+                .unwrap(NativeQuery.class)
+                .addScalar("change_tx", Long.class)
+                .addScalar("change_seq", Long.class)
+                .addScalar("id", Long.class)
+                .addScalar("name", String.class)
+                .addScalar("email", String.class)
+                .addScalar("age", Integer.class)
+                .addScalar("version", Long.class)
+                .addScalar("updated_at", Instant.class)
+                .addScalar("deleted", Boolean.class)
+                .setParameter(1, since.tx())
+                .setParameter(2, since.seq())
+                .setParameter(3, since.tx())
+                .setParameter(4, since.seq())
+                .setParameter(5, limit)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new CustomerChange(new CustomerChangeToken((Long) row[0], (Long) row[1]), (Long) row[2],
+                        (Boolean) row[8] ? null : toCustomer(row)))
+                .toList();
+    }
+
+    private static Customer toCustomer(Object[] row) {
+        Customer customer = new Customer((Long) row[2], (String) row[3], (String) row[4], (Integer) row[5]);
+        customer.setVersion((Long) row[6]);
+        customer.setUpdatedAt((Instant) row[7]);
+        return customer;
+    }
+
+    @Override
+    @Transactional
+    public CustomerUpdateResult patchCustomer(Customer customer, Long expectedVersion) {
+        List<CustomerField> columns = CustomerJDBCDataAccessService.patchColumns(customer);
+        NativeQuery<?> query = entityManager.createNativeQuery(CustomerJDBCDataAccessService.patchSql(columns, expectedVersion != null))
+                .unwrap(NativeQuery.class)
+                .addScalar("version", Long.class)
+                .addScalar("updated_at", Instant.class)
+                .addScalar("found", Boolean.class);
+        int position = 1;
+        for (CustomerField field : columns) {
+            query.setParameter(position++, field.get(customer));
+        }
+        query.setParameter(position++, customer.getId());
+        if (expectedVersion != null) {
+            query.setParameter(position++, expectedVersion);
+        }
+        query.setParameter(position, customer.getId());
+
+        Object[] row = (Object[]) query.getSingleResult();
+        if (row[0] != null) {
+            return CustomerUpdateResult.updated(new CustomerVersion((Long) row[0], (Instant) row[1]));
+        }
+        return (Boolean) row[2] ? CustomerUpdateResult.versionMismatch() : CustomerUpdateResult.notFound();
+    }
+
     @Override
     public void insertCustomer(Customer customer) {
         customerRepository.save(customer);
     }
 
+    @Override
+    public boolean insertCustomerIfAbsent(Customer customer) {
+        return customerRepository.insertIfAbsent(customer.getName(), customer.getEmail(), customer.getAge()) == 1;
+    }
+
+    @Override
+    @Transactional
+    public void insertCustomers(List<Customer> customers) {
+        //ids come from the pooled sequence block, so persist only queues rows for the JDBC batches
+        for (int i = 0; i < customers.size(); i++) {
+            entityManager.persist(customers.get(i));
+            if ((i + 1) % FLUSH_INTERVAL == 0) {
+                //bound the persistence context on large imports
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+    }
+
     @Override
     public boolean existPersonWithEmail(String email) {
         return customerRepository.existsByEmail(email);
     }
 
     @Override
-    public void deleteCustomer(Customer customer) {
-        customerRepository.delete(customer);
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return Set.of();
+        }
+        return customerRepository.findExistingEmails(emails);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public boolean deleteCustomerById(Long id) {
+        //bulk JPQL, unlike deleteById and save, which load the entity first
+        return customerRepository.deleteByIdReturningCount(id) > 0;
+    }
+
+    @Override
+    public boolean updateCustomer(Customer customer) {
+        return customerRepository.updateCustomer(customer.getId(), customer.getName(), customer.getEmail(), customer.getAge()) > 0;
+    }
+
+    private static String select(List<CustomerField> columns) {
+        return columns.stream()
+                .map(field -> "c." + field.column())
+                .collect(Collectors.joining(", ", "SELECT ", " FROM Customer c"));
+    }
+
+    private static Customer toCustomer(Tuple tuple, List<CustomerField> columns) {
+        Customer customer = new Customer();
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).set(customer, tuple.get(i));
+        }
+        return customer;
     }
 
 }
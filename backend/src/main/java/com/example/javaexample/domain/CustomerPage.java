@@ -0,0 +1,5 @@
+package com.example.javaexample.domain;
+
+import java.util.List;
+
+public record CustomerPage(List<Customer> customers, Long nextCursor) {}
@@ -0,0 +1,26 @@
+package com.example.javaexample.domain;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+//reads columns by position, in the order CustomerField.columns selected them
+public class CustomerProjectionRowMapper implements RowMapper<Customer> {
+
+    private final CustomerField[] fields;
+
+    public CustomerProjectionRowMapper(Set<CustomerField> fields) {
+        this.fields = fields.stream().sorted().toArray(CustomerField[]::new);
+    }
+
+    @Override
+    public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Customer customer = new Customer();
+        for (int i = 0; i < fields.length; i++) {
+            fields[i].set(customer, fields[i].read(rs, i + 1));
+        }
+        return customer;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.javaexample.domain;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.function.Function;
+
+@Repository("r2dbcRepository")
+@Profile("reactive")
+public class CustomerR2DBCDataAccessService implements CustomerReactiveDAO {
+
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2DBCDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields) {
+        return databaseClient.sql("SELECT " + CustomerField.columns(fields) + " FROM customer WHERE id > :after ORDER BY id LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(mapper(fields))
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> streamCustomers(Set<CustomerField> fields) {
+        //with a fetch size the driver reads through a portal and only asks for the next rows once the
+        //subscriber has requested them, so a slow client holds back the query instead of buffering the table
+        return databaseClient.sql("SELECT " + CustomerField.columns(fields) + " FROM customer")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(mapper(fields))
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> getCustomerById(Long id) {
+        return databaseClient.sql("SELECT id, name, email, age FROM customer WHERE id = :id")
+                .bind("id", id)
+                .map(mapper(CustomerField.ALL))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> insertCustomerIfAbsent(Customer customer) {
+        return databaseClient.sql("INSERT INTO customer(name, email, age) VALUES(:name, :email, :age) ON CONFLICT (email) DO NOTHING RETURNING id")
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .doOnNext(customer::setId)
+                .hasElement();
+    }
+
+    @Override
+    public Mono<Boolean> updateCustomer(Customer customer) {
+        return databaseClient.sql("UPDATE customer SET name = :name, email = :email, age = :age WHERE id = :id")
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .bind("id", customer.getId())
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomerById(Long id) {
+        return databaseClient.sql("DELETE FROM customer WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    //reads columns by position, in the order CustomerField.columns selected them
+    private static Function<Readable, Customer> mapper(Set<CustomerField> fields) {
+        CustomerField[] columns = fields.stream().sorted().toArray(CustomerField[]::new);
+        return row -> {
+            Customer customer = new Customer();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].set(customer, columns[i].read(row, i));
+            }
+            return customer;
+        };
+    }
+}
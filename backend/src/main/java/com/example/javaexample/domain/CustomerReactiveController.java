@@ -0,0 +1,87 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.ConditionalRequestNotSupportedException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+//the WebFlux counterpart of CustomerController, active with the reactive profile
+@RestController
+@RequestMapping("/api/v1/customers")
+@Profile("reactive")
+public class CustomerReactiveController {
+
+    private final CustomerReactiveService customerService;
+
+    public CustomerReactiveController(CustomerReactiveService customerService) {
+        this.customerService = customerService;
+    }
+
+    @GetMapping
+    public Mono<CustomerPage> getCustomers(@RequestParam(required = false) Long after,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String fields) {
+        return customerService.getCustomers(after, limit, CustomerField.parse(fields));
+    }
+
+    //one JSON document per line, written as the connection drains rather than collected first
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> streamCustomers(@RequestParam(required = false) String fields) {
+        return customerService.streamCustomers(CustomerField.parse(fields));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Customer> getCustomerById(@PathVariable Long id,
+                                          @RequestParam(required = false) String fields) {
+        Set<CustomerField> projection = CustomerField.parse(fields);
+        return customerService.getCustomerById(id)
+                .map(customer -> CustomerField.project(customer, projection));
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest) {
+        return customerService.addCustomer(customerRegistrationRequest);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<CustomerBatchRegistrationResult>> registerCustomers(@RequestBody List<CustomerRegistrationRequest> requests) {
+        return customerService.addCustomers(requests);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteCustomer(@PathVariable Long id) {
+        return customerService.deleteCustomer(id);
+    }
+
+    //there are no versions to check on this profile, and applying the update anyway would drop the guard the
+    //client asked for
+    @PutMapping("/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    public Mono<Void> updateCustomer(@PathVariable Long id, @RequestBody CustomerUpdateRequest request,
+                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            return Mono.error(new ConditionalRequestNotSupportedException("If-Match is not supported by the reactive api"));
+        }
+        return customerService.updateCustomer(id, request);
+    }
+
+}
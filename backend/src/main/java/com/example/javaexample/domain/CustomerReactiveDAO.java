@@ -0,0 +1,17 @@
+package com.example.javaexample.domain;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+public interface CustomerReactiveDAO {
+
+    Flux<Customer> getCustomers(Long after, int limit, Set<CustomerField> fields);
+    Flux<Customer> streamCustomers(Set<CustomerField> fields);
+    Mono<Customer> getCustomerById(Long id);
+    Mono<Boolean> insertCustomerIfAbsent(Customer customer);
+    Mono<Boolean> updateCustomer(Customer customer);
+    Mono<Boolean> deleteCustomerById(Long id);
+
+}
@@ -0,0 +1,114 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.DuplicateResourceException;
+import com.example.javaexample.exception.RequestValidationException;
+import com.example.javaexample.exception.ResourceNotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.example.javaexample.domain.CustomerService.DEFAULT_PAGE_SIZE;
+import static com.example.javaexample.domain.CustomerService.MAX_PAGE_SIZE;
+
+@Service
+@Profile("reactive")
+public class CustomerReactiveService {
+
+    private final CustomerReactiveDAO customerDAO;
+    private final CustomerService customerService;
+    private final CustomerEmailBloomFilter customerEmailFilter;
+
+    public CustomerReactiveService(CustomerReactiveDAO customerDAO,
+                                   CustomerService customerService,
+                                   CustomerEmailBloomFilter customerEmailFilter) {
+        this.customerDAO = customerDAO;
+        this.customerService = customerService;
+        this.customerEmailFilter = customerEmailFilter;
+    }
+
+    public Mono<CustomerPage> getCustomers(Long after, Integer limit, Set<CustomerField> fields) {
+        long cursor = after == null ? 0 : after;
+        int pageSize = limit == null || limit < 1 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        //fetch one extra row to know whether another page exists
+        return customerDAO.getCustomers(cursor, pageSize + 1, fields)
+                .collectList()
+                .map(customers -> {
+                    if (customers.size() <= pageSize) {
+                        return new CustomerPage(customers, null);
+                    }
+                    List<Customer> page = customers.subList(0, pageSize);
+                    return new CustomerPage(page, page.get(pageSize - 1).getId());
+                });
+    }
+
+    public Flux<Customer> streamCustomers(Set<CustomerField> fields) {
+        return customerDAO.streamCustomers(fields);
+    }
+
+    public Mono<Customer> getCustomerById(Long id) {
+        return customerDAO.getCustomerById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(String.format("Customer with id %s not found", id))));
+    }
+
+    public Mono<Void> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        if (!CustomerService.isComplete(customerRegistrationRequest.name(), customerRegistrationRequest.email(),
+                customerRegistrationRequest.age())) {
+            return Mono.error(incomplete());
+        }
+        String email = customerRegistrationRequest.email();
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                email,
+                customerRegistrationRequest.age()
+        );
+
+        //the email check and the insert are one atomic statement
+        return customerDAO.insertCustomerIfAbsent(customer)
+                .flatMap(inserted -> inserted
+                        ? Mono.fromRunnable(() -> customerEmailFilter.put(email))
+                        : Mono.error(new DuplicateResourceException(String.format("Customer with email %s already exist", email))));
+    }
+
+    //batches go through the JDBC batch insert; it blocks, so it runs off the event loop
+    public Mono<List<CustomerBatchRegistrationResult>> addCustomers(List<CustomerRegistrationRequest> requests) {
+        return Mono.fromCallable(() -> customerService.addCustomers(requests))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<Void> deleteCustomer(Long id) {
+        return customerDAO.deleteCustomerById(id)
+                .flatMap(deleted -> deleted
+                        ? Mono.fromRunnable(customerEmailFilter::recordDeletion)
+                        : Mono.error(new ResourceNotFoundException("Customer with id %s not found".formatted(id))));
+    }
+
+    //a replacement like the servlet PUT, so every field is required
+    public Mono<Void> updateCustomer(Long id, CustomerUpdateRequest request) {
+        if (!CustomerService.isComplete(request.name(), request.email(), request.age())) {
+            return Mono.error(incomplete());
+        }
+        Customer customer = new Customer(id, request.name(), request.email(), request.age());
+        return customerDAO.updateCustomer(customer)
+                .onErrorMap(CustomerReactiveService::isEmailTaken, e -> new DuplicateResourceException(
+                        String.format("Customer with email %s already exist", request.email())))
+                .flatMap(updated -> updated
+                        ? Mono.fromRunnable(() -> customerEmailFilter.put(request.email()))
+                        : Mono.error(new ResourceNotFoundException("Customer with id %s not found".formatted(id))));
+    }
+
+    //any other integrity violation is not the client's email clashing, and is left to surface as it is
+    private static boolean isEmailTaken(Throwable e) {
+        return e instanceof DuplicateKeyException && e.getMessage() != null && e.getMessage().contains("customer_email_uk");
+    }
+
+    private static RequestValidationException incomplete() {
+        return new RequestValidationException("A customer needs a name, an email and an age");
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//registrations wait here and a single writer inserts whatever piled up while it committed the previous group, so
+//the statement count follows the pace of the database instead of the request rate; with customer.registration.async
+//disabled it is never started
+@Component
+public class CustomerRegistrationQueue implements SmartLifecycle, MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerRegistrationQueue.class);
+    private static final long POLL_MILLIS = 100;
+
+    private final CustomerDAO customerDAO;
+    private final CustomerEmailBloomFilter customerEmailFilter;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final BlockingQueue<Registration> queue;
+    //results outlive their queue entry for the ttl; bounded, so a burst cannot keep them all
+    private final Cache<UUID, CustomerRegistrationResult> results;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private volatile boolean accepting;
+    private volatile Thread writer;
+
+    public CustomerRegistrationQueue(@Qualifier("jdbcTemplateRepository") CustomerDAO customerDAO,
+                                     CustomerEmailBloomFilter customerEmailFilter,
+                                     @Value("${customer.registration.async.enabled:false}") boolean enabled,
+                                     @Value("${customer.registration.async.capacity:10000}") int capacity,
+                                     @Value("${customer.registration.async.max-batch-size:1000}") int maxBatchSize,
+                                     @Value("${customer.registration.async.results-ttl:10m}") Duration resultsTtl) {
+        if (capacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("capacity and max-batch-size must be positive");
+        }
+        this.customerDAO = customerDAO;
+        this.customerEmailFilter = customerEmailFilter;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(resultsTtl)
+                .maximumSize(capacity * 10L)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CustomerRegistrationResult submit(Customer customer) {
+        if (!accepting) {
+            throw new TooManyRequestsException("Registrations are not being accepted, retry later");
+        }
+        CustomerRegistrationResult queued = new CustomerRegistrationResult(
+                UUID.randomUUID(), customer.getEmail(), CustomerRegistrationResult.Status.QUEUED, null);
+        //recorded before the writer can see the registration, so its outcome is never overwritten with QUEUED
+        results.put(queued.trackingId(), queued);
+        if (!queue.offer(new Registration(customer, queued))) {
+            results.invalidate(queued.trackingId());
+            throw new TooManyRequestsException("The registration queue is full, retry later");
+        }
+        return queued;
+    }
+
+    public Optional<CustomerRegistrationResult> getResult(UUID trackingId) {
+        return Optional.ofNullable(results.getIfPresent(trackingId));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        accepting = true;
+        writer = Thread.ofPlatform()
+                .name("customer-registration-writer")
+                .start(this::drain);
+    }
+
+    //whatever is still queued is written before the DataSource goes away
+    @Override
+    public void stop() {
+        accepting = false;
+        Thread current = writer;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return writer != null;
+    }
+
+    //stopped after the web server (DEFAULT_PHASE - 2048), so no request can queue behind the last flush
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.registration.queue.size", queue, BlockingQueue::size)
+                .register(registry);
+        FunctionCounter.builder("customer.registration.batches", batches, LongAdder::sum)
+                .description("Group inserts of queued registrations")
+                .register(registry);
+        FunctionCounter.builder("customer.registration.written", written, LongAdder::sum)
+                .description("Queued registrations that reached the database, inserted or not")
+                .register(registry);
+    }
+
+    private void drain() {
+        List<Registration> batch = new ArrayList<>(maxBatchSize);
+        while (accepting || !queue.isEmpty()) {
+            Registration first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    void write(List<Registration> batch) {
+        //the first registration of an email wins, like two sequential POSTs would
+        Set<String> emails = new HashSet<>();
+        List<Registration> distinct = new ArrayList<>(batch.size());
+        for (Registration registration : batch) {
+            if (emails.add(registration.customer().getEmail())) {
+                distinct.add(registration);
+            } else {
+                complete(registration, CustomerRegistrationResult.Status.EMAIL_ALREADY_EXISTS);
+            }
+        }
+        try {
+            Set<String> inserted = customerDAO.insertCustomersIfAbsent(distinct.stream().map(Registration::customer).toList());
+            batches.increment();
+            for (Registration registration : distinct) {
+                if (inserted.contains(registration.customer().getEmail())) {
+                    customerEmailFilter.put(registration.customer().getEmail());
+                    complete(registration, CustomerRegistrationResult.Status.CREATED);
+                } else {
+                    complete(registration, CustomerRegistrationResult.Status.EMAIL_ALREADY_EXISTS);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (distinct.size() == 1) {
+                LOGGER.warn("Queued registration of {} failed", distinct.get(0).customer().getEmail(), e);
+                complete(distinct.get(0), CustomerRegistrationResult.Status.FAILED);
+                return;
+            }
+            //one bad row fails the whole statement; one by one, only that registration fails
+            distinct.forEach(registration -> write(List.of(registration)));
+        }
+    }
+
+    private void complete(Registration registration, CustomerRegistrationResult.Status status) {
+        written.increment();
+        results.put(registration.result().trackingId(), registration.result().with(status, registration.customer().getId()));
+    }
+
+    record Registration(Customer customer, CustomerRegistrationResult result) {
+    }
+}
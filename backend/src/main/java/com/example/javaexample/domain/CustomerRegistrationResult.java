@@ -0,0 +1,17 @@
+package com.example.javaexample.domain;
+
+import java.util.UUID;
+
+public record CustomerRegistrationResult(UUID trackingId, String email, Status status, Long customerId) {
+
+    public enum Status {
+        QUEUED,
+        CREATED,
+        EMAIL_ALREADY_EXISTS,
+        FAILED
+    }
+
+    CustomerRegistrationResult with(Status status, Long customerId) {
+        return new CustomerRegistrationResult(trackingId, email, status, customerId);
+    }
+}
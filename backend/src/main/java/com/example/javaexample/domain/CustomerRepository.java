@@ -1,7 +1,48 @@
 package com.example.javaexample.domain;
 
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface CustomerRepository  extends JpaRepository<Customer, Long> {
+    List<Customer> findByIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT c FROM Customer c")
+    Stream<Customer> streamAllBy();
     boolean existsByEmail(String email);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO customer(name, email, age) VALUES (:name, :email, :age) ON CONFLICT (email) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(String name, String email, Integer age);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = :id")
+    int deleteByIdReturningCount(Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Customer c SET c.name = :name, c.email = :email, c.age = :age WHERE c.id = :id")
+    int updateCustomer(Long id, String name, String email, Integer age);
+
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    @Query("SELECT new com.example.javaexample.domain.CustomerVersion(c.version, c.updatedAt) FROM Customer c WHERE c.id = :id")
+    Optional<CustomerVersion> findVersionById(Long id);
 }
@@ -12,11 +12,14 @@ public class CustomerRowMapper implements RowMapper<Customer> {
 
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new Customer(
-                (long) rs.getInt("id"),
+        Customer customer = new Customer(
+                rs.getLong("id"),
                 rs.getString("name"),
                 rs.getString("email"),
                 rs.getInt("age")
         );
+        customer.setVersion(rs.getLong("version"));
+        customer.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
+        return customer;
     }
 }
@@ -0,0 +1,63 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.RequestValidationException;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+//terms match case-insensitively, so they are kept lower-cased; a null criterion matches everything
+public record CustomerSearchCriteria(String name, String email, Integer minAge, Integer maxAge, Match match) {
+
+    public enum Match {
+        CONTAINS,
+        PREFIX;
+
+        public static Match parse(String match) {
+            if (match == null || match.isBlank()) {
+                return CONTAINS;
+            }
+            return Arrays.stream(values())
+                    .filter(value -> value.name().equalsIgnoreCase(match.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new RequestValidationException(
+                            "Unknown match %s, expected one of %s".formatted(match, Arrays.toString(values()))));
+        }
+    }
+
+    public CustomerSearchCriteria {
+        name = normalize(name);
+        email = normalize(email);
+        match = match == null ? Match.CONTAINS : match;
+    }
+
+    public boolean hasTerms() {
+        return name != null || email != null || minAge != null || maxAge != null;
+    }
+
+    public boolean matches(Customer customer) {
+        return matches(name, customer.getName())
+                && matches(email, customer.getEmail())
+                && (minAge == null || customer.getAge() >= minAge)
+                && (maxAge == null || customer.getAge() <= maxAge);
+    }
+
+    //a LIKE pattern escaped with backslashes, to be compared against lower(column)
+    String likePattern(String term) {
+        String escaped = term.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return match == Match.PREFIX ? escaped + "%" : "%" + escaped + "%";
+    }
+
+    private boolean matches(String term, String value) {
+        if (term == null) {
+            return true;
+        }
+        String lowerCased = value.toLowerCase(Locale.ROOT);
+        return match == Match.PREFIX ? lowerCased.startsWith(term) : lowerCased.contains(term);
+    }
+
+    private static String normalize(String term) {
+        return term == null || term.isBlank() ? null : term.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.javaexample.domain;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongFunction;
+
+//the in-memory counterpart of the trigram and age indexes: every posting set is kept in id order,
+//so a search steps through the postings of all criteria together and pages by id like the database
+class CustomerSearchIndex {
+
+    static final int GRAM_LENGTH = 3;
+    //padded in front of each value, like pg_trgm does, so even a one letter prefix has a gram to look up
+    private static final String ANCHOR = "\u0000".repeat(GRAM_LENGTH - 1);
+
+    private final Map<String, NavigableSet<Long>> idsByNameGram = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<Long>> idsByEmailGram = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Integer, NavigableSet<Long>> idsByAge = new ConcurrentSkipListMap<>();
+
+    //callers serialize updates of the same customer
+    void update(Customer previous, Customer current) {
+        Long id = previous != null ? previous.getId() : current.getId();
+        reindex(idsByNameGram, grams(previous, CustomerField.NAME), grams(current, CustomerField.NAME), id);
+        reindex(idsByEmailGram, grams(previous, CustomerField.EMAIL), grams(current, CustomerField.EMAIL), id);
+        reindex(idsByAge, previous == null ? Set.of() : Set.of(previous.getAge()), current == null ? Set.of() : Set.of(current.getAge()), id);
+    }
+
+    //ids may be stale, so the caller still checks the stored customer against the criteria
+    Candidates candidates(CustomerSearchCriteria criteria, NavigableSet<Long> allIds) {
+        List<LongFunction<Long>> postings = new ArrayList<>();
+        addGrams(postings, idsByNameGram, criteria.name(), criteria.match());
+        addGrams(postings, idsByEmailGram, criteria.email(), criteria.match());
+        if (criteria.minAge() != null || criteria.maxAge() != null) {
+            Integer minAge = criteria.minAge() == null ? Integer.MIN_VALUE : criteria.minAge();
+            Integer maxAge = criteria.maxAge() == null ? Integer.MAX_VALUE : criteria.maxAge();
+            if (minAge > maxAge) {
+                postings.add(id -> null);
+            } else {
+                Iterable<NavigableSet<Long>> ages = idsByAge.subMap(minAge, true, maxAge, true).values();
+                postings.add(id -> {
+                    Long next = null;
+                    for (NavigableSet<Long> ids : ages) {
+                        Long ceiling = ids.ceiling(id);
+                        if (ceiling != null && (next == null || ceiling < next)) {
+                            next = ceiling;
+                        }
+                    }
+                    return next;
+                });
+            }
+        }
+        if (postings.isEmpty()) {
+            postings.add(allIds::ceiling);
+        }
+        return new Candidates(postings);
+    }
+
+    static class Candidates {
+
+        private final List<LongFunction<Long>> postings;
+
+        private Candidates(List<LongFunction<Long>> postings) {
+            this.postings = postings;
+        }
+
+        //the smallest id after the given one that is in every posting set, leapfrogging from set to set
+        Long after(long id) {
+            long candidate = id + 1;
+            int agreeing = 0;
+            for (int i = 0; agreeing < postings.size(); i = (i + 1) % postings.size()) {
+                Long next = postings.get(i).apply(candidate);
+                if (next == null) {
+                    return null;
+                }
+                if (next == candidate) {
+                    agreeing++;
+                } else {
+                    candidate = next;
+                    agreeing = 1;
+                }
+            }
+            return candidate;
+        }
+    }
+
+    private static void addGrams(List<LongFunction<Long>> postings, Map<String, NavigableSet<Long>> idsByGram,
+                                 String term, CustomerSearchCriteria.Match match) {
+        if (term == null) {
+            return;
+        }
+        //a term shorter than a gram has nothing to look up when it may match anywhere in the value
+        String padded = match == CustomerSearchCriteria.Match.PREFIX ? ANCHOR + term : term;
+        for (String gram : grams(padded)) {
+            NavigableSet<Long> ids = idsByGram.get(gram);
+            postings.add(ids == null ? id -> null : ids::ceiling);
+        }
+    }
+
+    private static Set<String> grams(Customer customer, CustomerField field) {
+        if (customer == null) {
+            return Set.of();
+        }
+        return grams(ANCHOR + ((String) field.get(customer)).toLowerCase(Locale.ROOT));
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    //emptied posting sets are kept, a concurrent add may already be holding on to them
+    private static <K> void reindex(Map<K, NavigableSet<Long>> idsByKey, Set<K> previous, Set<K> current, Long id) {
+        for (K key : current) {
+            if (!previous.contains(key)) {
+                idsByKey.computeIfAbsent(key, ignored -> new ConcurrentSkipListSet<>()).add(id);
+            }
+        }
+        for (K key : previous) {
+            if (!current.contains(key)) {
+                NavigableSet<Long> ids = idsByKey.get(key);
+                if (ids != null) {
+                    ids.remove(id);
+                }
+            }
+        }
+    }
+}
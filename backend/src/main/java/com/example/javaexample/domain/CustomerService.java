@@ -1,65 +1,295 @@
 package com.example.javaexample.domain;
 
+import com.example.javaexample.ReplicaRoutingDataSource;
 import com.example.javaexample.exception.DuplicateResourceException;
+import com.example.javaexample.exception.PreconditionFailedException;
+import com.example.javaexample.exception.RequestValidationException;
 import com.example.javaexample.exception.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService  {
 
-    private final CustomerDAO customerDAO;
+    static final String CUSTOMERS_CACHE = "customers";
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_BATCH_SIZE = 10_000;
+    //trigram indexes cannot narrow down a shorter substring, such a search would scan every customer
+    static final int MIN_CONTAINS_TERM_LENGTH = 3;
 
-    public CustomerService(@Qualifier("jdbcTemplateRepository") CustomerDAO customerDAO) {
+    private final CustomerVersionedDAO customerDAO;
+    private final CustomerCopyDataAccessService customerCopyDataAccessService;
+    private final CustomerEmailBloomFilter customerEmailFilter;
+    private final CustomerRegistrationQueue customerRegistrationQueue;
+
+    public CustomerService(@Qualifier("jdbcTemplateRepository") CustomerVersionedDAO customerDAO,
+                           CustomerCopyDataAccessService customerCopyDataAccessService,
+                           CustomerEmailBloomFilter customerEmailFilter,
+                           CustomerRegistrationQueue customerRegistrationQueue) {
         this.customerDAO = customerDAO;
+        this.customerCopyDataAccessService = customerCopyDataAccessService;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerRegistrationQueue = customerRegistrationQueue;
     }
 
+    //reads that a replica may serve; SUPPORTS marks them read-only without opening a transaction
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public List<Customer> getAllCustomers() {
         return customerDAO.getAllCustomers();
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerPage getCustomers(Long after, Integer limit, Set<CustomerField> fields) {
+        int pageSize = pageSize(limit);
+        //fetch one extra row to know whether another page exists
+        return page(customerDAO.getCustomers(cursor(after), pageSize + 1, fields), pageSize);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerPage searchCustomers(CustomerSearchCriteria criteria, Long after, Integer limit) {
+        if (!criteria.hasTerms()) {
+            throw new RequestValidationException("A search needs a name, an email or an age range");
+        }
+        if (criteria.match() == CustomerSearchCriteria.Match.CONTAINS
+                && (isTooShort(criteria.name()) || isTooShort(criteria.email()))) {
+            throw new RequestValidationException(
+                    "Search terms need at least %s characters, or match=prefix".formatted(MIN_CONTAINS_TERM_LENGTH));
+        }
+        if (criteria.minAge() != null && criteria.maxAge() != null && criteria.minAge() > criteria.maxAge()) {
+            throw new RequestValidationException("minAge %s is greater than maxAge %s".formatted(criteria.minAge(), criteria.maxAge()));
+        }
+        int pageSize = pageSize(limit);
+        return page(customerDAO.searchCustomers(criteria, cursor(after), pageSize + 1), pageSize);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public void streamCustomers(Set<CustomerField> fields, Consumer<Customer> consumer) {
+        customerDAO.forEachCustomer(fields, consumer);
+    }
+
+    //the cache is shared by every request and outlives an eviction by up to its ttl, so it is only ever filled
+    //from the primary: a lagging replica would otherwise put back the row an update just evicted
+    @Cacheable(cacheNames = CUSTOMERS_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Customer getCustomerById(Long id) {
-        return customerDAO.getCustomerById(id)
+        return loadFromPrimary(id);
+    }
+
+    //for callers that found the cached row older than the version they validated against
+    @CachePut(cacheNames = CUSTOMERS_CACHE, key = "#id")
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Customer reloadCustomerById(Long id) {
+        return loadFromPrimary(id);
+    }
+
+    private Customer loadFromPrimary(Long id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> customerDAO.getCustomerById(id))
                 .orElseThrow(() -> new ResourceNotFoundException(String.format("Customer with id %s not found", id)));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        //check if email is used
-        if(customerDAO.existPersonWithEmail(customerRegistrationRequest.email())) {
-            throw new DuplicateResourceException(String.format("Customer with email %s already exist", customerRegistrationRequest.email()));
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerVersion getCustomerVersion(Long id) {
+        return customerDAO.getCustomerVersion(id)
+                .orElseThrow(() -> new ResourceNotFoundException(String.format("Customer with id %s not found", id)));
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerVersion getTableVersion() {
+        return customerDAO.getTableVersion();
+    }
+
+    //without a token the sync starts from the beginning, so a new client pages through every customer once
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerChanges getChanges(String since, Integer limit) {
+        CustomerChangeToken token = since == null ? CustomerChangeToken.START : CustomerChangeToken.parse(since);
+        int pageSize = pageSize(limit);
+        List<CustomerChange> changes = customerDAO.getChangesSince(token, pageSize + 1);
+        if (changes.size() <= pageSize) {
+            return CustomerChanges.of(changes, token, false);
         }
+        return CustomerChanges.of(changes.subList(0, pageSize), token, true);
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CustomerStats getCustomerStats() {
+        return customerDAO.getCustomerStats();
+    }
+
+    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        String email = customerRegistrationRequest.email();
         Customer customer = new Customer(
                 customerRegistrationRequest.name(),
-                customerRegistrationRequest.email(),
+                email,
                 customerRegistrationRequest.age()
         );
 
-        customerDAO.insertCustomer(customer);
+        //the email check and the insert are one atomic statement
+        if(!customerDAO.insertCustomerIfAbsent(customer)) {
+            throw new DuplicateResourceException(String.format("Customer with email %s already exist", email));
+        }
+        customerEmailFilter.put(email);
+    }
+
+    public boolean registersAsynchronously() {
+        return customerRegistrationQueue.isEnabled();
+    }
+
+    //only what can be checked without the database; a taken email shows up in the result once written
+    public CustomerRegistrationResult queueCustomer(CustomerRegistrationRequest request) {
+        if (!isComplete(request)) {
+            throw new RequestValidationException("A customer needs a name, an email and an age");
+        }
+        return customerRegistrationQueue.submit(new Customer(request.name(), request.email(), request.age()));
+    }
+
+    public CustomerRegistrationResult getRegistration(UUID trackingId) {
+        return customerRegistrationQueue.getResult(trackingId)
+                .orElseThrow(() -> new ResourceNotFoundException(String.format("Registration %s not found", trackingId)));
+    }
+
+    public List<CustomerBatchRegistrationResult> addCustomers(List<CustomerRegistrationRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new RequestValidationException("A batch can contain at most %s customers".formatted(MAX_BATCH_SIZE));
+        }
+        //one set-based lookup instead of a round trip per email, limited to emails the filter might know
+        Set<String> existingEmails = customerDAO.findExistingEmails(
+                requests.stream()
+                        .filter(CustomerService::isComplete)
+                        .map(CustomerRegistrationRequest::email)
+                        .distinct()
+                        .filter(customerEmailFilter::mightContain)
+                        .toList()
+        );
+
+        Set<String> requestedEmails = new HashSet<>();
+        List<Customer> customers = new ArrayList<>();
+        List<CustomerBatchRegistrationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            CustomerBatchRegistrationResult.Status status;
+            if (!isComplete(request)) {
+                status = CustomerBatchRegistrationResult.Status.INVALID;
+            } else if (existingEmails.contains(request.email())) {
+                status = CustomerBatchRegistrationResult.Status.EMAIL_ALREADY_EXISTS;
+            } else if (!requestedEmails.add(request.email())) {
+                status = CustomerBatchRegistrationResult.Status.DUPLICATE_IN_REQUEST;
+            } else {
+                status = CustomerBatchRegistrationResult.Status.CREATED;
+                customers.add(new Customer(request.name(), request.email(), request.age()));
+            }
+            results.add(new CustomerBatchRegistrationResult(i, request.email(), status));
+        }
+
+        if (customers.isEmpty()) {
+            return results;
+        }
+        //an email registered concurrently since the lookup is skipped by the insert and reported like any taken email
+        Set<String> inserted = customerDAO.insertCustomersIfAbsent(customers);
+        inserted.forEach(customerEmailFilter::put);
+        for (int i = 0; i < results.size(); i++) {
+            CustomerBatchRegistrationResult result = results.get(i);
+            if (result.status() == CustomerBatchRegistrationResult.Status.CREATED && !inserted.contains(result.email())) {
+                results.set(i, new CustomerBatchRegistrationResult(i, result.email(),
+                        CustomerBatchRegistrationResult.Status.EMAIL_ALREADY_EXISTS));
+            }
+        }
+        return results;
+    }
+
+    private static boolean isComplete(CustomerRegistrationRequest request) {
+        return isComplete(request.name(), request.email(), request.age());
+    }
+
+    //what a registration or a replacement needs before it is worth a round trip
+    static boolean isComplete(String name, String email, Integer age) {
+        return StringUtils.hasText(name) && StringUtils.hasText(email) && age != null;
+    }
+
+    public CustomerImportResult importCustomers(InputStream csv, boolean header) {
+        CustomerImportResult result = customerCopyDataAccessService.importCustomers(csv, header);
+        if (result.inserted() > 0) {
+            customerEmailFilter.invalidate();
+        }
+        return result;
     }
 
+    @CacheEvict(cacheNames = CUSTOMERS_CACHE, key = "#id")
     public void deleteCustomer(Long id) {
-        Optional<Customer> optionalCustomer = customerDAO.getCustomerById(id);
-        if(optionalCustomer.isEmpty()) {
+        if (!customerDAO.deleteCustomerById(id)) {
             throw new ResourceNotFoundException("Customer with id %s not found".formatted(id));
         }
-        customerDAO.deleteCustomer(optionalCustomer.get());
+        customerEmailFilter.recordDeletion();
     }
 
-    public void updateCustomer(Long id, CustomerUpdateRequest request) {
-        Optional<Customer> optionalCustomer = customerDAO.getCustomerById(id);
-        if(optionalCustomer.isEmpty()) {
-            throw new ResourceNotFoundException("Customer with id %s not found".formatted(id));
+    //a replacement, so every field is required whether or not a version is expected; it is then written like a patch
+    //of all fields
+    @CacheEvict(cacheNames = CUSTOMERS_CACHE, key = "#id")
+    public CustomerVersion updateCustomer(Long id, CustomerUpdateRequest request, Long expectedVersion) {
+        if (!isComplete(request.name(), request.email(), request.age())) {
+            throw new RequestValidationException("A customer needs a name, an email and an age");
+        }
+        return write(id, request, expectedVersion);
+    }
+
+    @CacheEvict(cacheNames = CUSTOMERS_CACHE, key = "#id")
+    public CustomerVersion patchCustomer(Long id, CustomerUpdateRequest request, Long expectedVersion) {
+        if (request.name() == null && request.email() == null && request.age() == null) {
+            throw new RequestValidationException("No customer fields to update");
+        }
+        return write(id, request, expectedVersion);
+    }
+
+    private CustomerVersion write(Long id, CustomerUpdateRequest request, Long expectedVersion) {
+        CustomerUpdateResult result;
+        try {
+            result = customerDAO.patchCustomer(new Customer(id, request.name(), request.email(), request.age()), expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateResourceException(String.format("Customer with email %s already exist", request.email()));
         }
-        Customer customer = optionalCustomer.get();
+        switch (result.status()) {
+            case NOT_FOUND -> throw new ResourceNotFoundException("Customer with id %s not found".formatted(id));
+            case VERSION_MISMATCH -> throw new PreconditionFailedException(
+                    "Customer with id %s was modified since version %s".formatted(id, expectedVersion));
+        }
+        if (request.email() != null) {
+            customerEmailFilter.put(request.email());
+        }
+        return result.version();
+    }
+
+    private static long cursor(Long after) {
+        return after == null ? 0 : after;
+    }
 
-        customer.setName(request.name());
-        customer.setEmail(request.email());
-        customer.setAge(request.age());
+    private static int pageSize(Integer limit) {
+        return limit == null || limit < 1 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
 
-        customerDAO.updateCustomer(customer);
+    private static CustomerPage page(List<Customer> customers, int pageSize) {
+        if (customers.size() <= pageSize) {
+            return new CustomerPage(customers, null);
+        }
+        List<Customer> page = customers.subList(0, pageSize);
+        return new CustomerPage(page, page.get(pageSize - 1).getId());
+    }
 
+    private static boolean isTooShort(String term) {
+        return term != null && term.length() < MIN_CONTAINS_TERM_LENGTH;
     }
 }
@@ -0,0 +1,33 @@
+package com.example.javaexample.domain;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+//min, max and average are null while there are no customers
+public record CustomerStats(long count, Integer minAge, Integer maxAge, Double averageAge, SortedMap<Integer, Long> ageHistogram) {
+
+    //derived from the customers per age, so the cost grows with the distinct ages and not with the customers
+    static CustomerStats of(SortedMap<Integer, Long> customersByAge) {
+        SortedMap<Integer, Long> histogram = new TreeMap<>();
+        long count = 0;
+        long ageSum = 0;
+        for (var entry : customersByAge.entrySet()) {
+            if (entry.getValue() > 0) {
+                histogram.put(entry.getKey(), entry.getValue());
+                count += entry.getValue();
+                ageSum += entry.getKey() * entry.getValue();
+            }
+        }
+        if (count == 0) {
+            return new CustomerStats(0, null, null, null, Collections.emptySortedMap());
+        }
+        return new CustomerStats(
+                count,
+                histogram.firstKey(),
+                histogram.lastKey(),
+                (double) ageSum / count,
+                Collections.unmodifiableSortedMap(histogram)
+        );
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.javaexample.domain;
+
+public record CustomerUpdateResult(Status status, CustomerVersion version) {
+
+    public enum Status {
+        UPDATED,
+        VERSION_MISMATCH,
+        NOT_FOUND
+    }
+
+    public static CustomerUpdateResult updated(CustomerVersion version) {
+        return new CustomerUpdateResult(Status.UPDATED, version);
+    }
+
+    public static CustomerUpdateResult versionMismatch() {
+        return new CustomerUpdateResult(Status.VERSION_MISMATCH, null);
+    }
+
+    public static CustomerUpdateResult notFound() {
+        return new CustomerUpdateResult(Status.NOT_FOUND, null);
+    }
+}
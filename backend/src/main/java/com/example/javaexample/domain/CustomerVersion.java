@@ -0,0 +1,11 @@
+package com.example.javaexample.domain;
+
+import java.time.Instant;
+
+public record CustomerVersion(long version, Instant updatedAt) {
+
+    //strong: a version always stands for the same row, so a URL renders it byte for byte
+    public String eTag() {
+        return "\"" + version + "\"";
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.javaexample.domain;
+
+import java.util.List;
+import java.util.Optional;
+
+//versions and change sequences are kept by triggers on the customer table, so only the database backed stores
+//implement this; the service needs it for conditional requests, patches and delta syncs
+public interface CustomerVersionedDAO extends CustomerDAO {
+
+    Optional<CustomerVersion> getCustomerVersion(Long id);
+    CustomerVersion getTableVersion();
+
+    //customers and tombstones changed after the token, in change order
+    List<CustomerChange> getChangesSince(CustomerChangeToken since, int limit);
+
+    //writes the non-null fields of the customer; with an expected version the row must still carry it
+    CustomerUpdateResult patchCustomer(Customer customer, Long expectedVersion);
+
+}
@@ -0,0 +1,11 @@
+package com.example.javaexample.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class ConditionalRequestNotSupportedException extends RuntimeException {
+    public ConditionalRequestNotSupportedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+-- the single version row of V4 made every writer queue on it until commit; the version is now spread over stripes,
+-- each writing backend bumps the stripe of its pid, and the table version is their sum. the sum still rises with
+-- every write and, being committed data like before, never runs ahead of the rows it validates
+CREATE TABLE customer_table_version_stripe (
+    stripe INT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL
+);
+
+-- no bump may slip in between the copy and the new trigger function
+LOCK TABLE customer IN SHARE ROW EXCLUSIVE MODE;
+
+-- the first stripe carries the old version, so ETags handed out before keep going up
+INSERT INTO customer_table_version_stripe(stripe, version, updated_at)
+SELECT stripe, CASE WHEN stripe = 0 THEN version ELSE 0 END, updated_at
+FROM customer_table_version, generate_series(0, 63) AS stripe;
+
+DROP TABLE customer_table_version;
+ALTER TABLE customer_table_version_stripe RENAME TO customer_table_version;
+
+CREATE OR REPLACE FUNCTION customer_bump_table_version() RETURNS trigger AS $$
+BEGIN
+    UPDATE customer_table_version SET version = version + 1, updated_at = now()
+    WHERE stripe = pg_backend_pid() % 64;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,10 @@
+-- the position of the newest event pruned so far: a subscriber resuming from before it has missed at least that
+-- event, and must sync again rather than carry on as if nothing had happened. pruning goes by age while positions
+-- go by (tx, id), so events before the horizon may still be there; none after it is gone
+CREATE TABLE customer_event_horizon (
+    singleton BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (singleton),
+    tx BIGINT NOT NULL,
+    event_id BIGINT NOT NULL
+);
+
+INSERT INTO customer_event_horizon(tx, event_id) VALUES (0, 0);
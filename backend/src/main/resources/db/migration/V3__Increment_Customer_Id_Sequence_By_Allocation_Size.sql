@@ -0,0 +1,2 @@
+-- must match allocationSize of the customer_id_seq generator on Customer
+ALTER SEQUENCE customer_id_seq INCREMENT BY 50;
\ No newline at end of file
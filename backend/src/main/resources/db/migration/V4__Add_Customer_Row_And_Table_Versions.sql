@@ -0,0 +1,37 @@
+ALTER TABLE customer
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+-- every UPDATE bumps the row version, whichever data access service issued it
+CREATE FUNCTION customer_bump_version() RETURNS trigger AS $$
+BEGIN
+    NEW.version := OLD.version + 1;
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_bump_version
+    BEFORE UPDATE ON customer
+    FOR EACH ROW EXECUTE FUNCTION customer_bump_version();
+
+-- a single row validating the whole customer list; the bump commits with the statement that changed the table,
+-- and writers queue on this row only until their transaction ends
+CREATE TABLE customer_table_version (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL
+);
+
+INSERT INTO customer_table_version(version, updated_at) VALUES (0, now());
+
+CREATE FUNCTION customer_bump_table_version() RETURNS trigger AS $$
+BEGIN
+    UPDATE customer_table_version SET version = version + 1, updated_at = now();
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_bump_table_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON customer
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_bump_table_version();
@@ -0,0 +1,10 @@
+-- built concurrently so a populated table stays writable; Flyway runs this script outside a transaction.
+-- a failed concurrent build leaves an invalid index behind, so a rerun drops it and starts over
+DROP INDEX CONCURRENTLY IF EXISTS customer_name_trgm_idx;
+DROP INDEX CONCURRENTLY IF EXISTS customer_email_trgm_idx;
+DROP INDEX CONCURRENTLY IF EXISTS customer_age_idx;
+
+-- the trigram indexes serve LIKE on lower(column), both '%term%' and 'term%'
+CREATE INDEX CONCURRENTLY customer_name_trgm_idx ON customer USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY customer_email_trgm_idx ON customer USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY customer_age_idx ON customer (age);
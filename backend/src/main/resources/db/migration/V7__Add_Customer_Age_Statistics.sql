@@ -0,0 +1,76 @@
+-- customers per age, kept current by statement triggers so reading the statistics never scans customer;
+-- a row per age spreads concurrent writers over many rows instead of queueing them on a single total
+CREATE TABLE customer_age_stats (
+    age INT PRIMARY KEY,
+    customers BIGINT NOT NULL
+);
+
+-- no writes may slip in between the backfill and the triggers
+LOCK TABLE customer IN SHARE ROW EXCLUSIVE MODE;
+
+INSERT INTO customer_age_stats(age, customers)
+SELECT age, count(*) FROM customer GROUP BY age;
+
+-- applies per age deltas; ages are visited in order so concurrent statements lock the rows in the same order
+CREATE FUNCTION customer_apply_age_stats(deltas customer_age_stats[]) RETURNS void AS $$
+BEGIN
+    INSERT INTO customer_age_stats AS stats(age, customers)
+    SELECT age, customers FROM unnest(deltas) WHERE customers <> 0 ORDER BY age
+    ON CONFLICT (age) DO UPDATE SET customers = stats.customers + excluded.customers;
+END;
+$$ LANGUAGE plpgsql;
+
+-- transition tables hand each statement its rows at once, so a batch or COPY costs one upsert per distinct age
+CREATE FUNCTION customer_count_inserted_ages() RETURNS trigger AS $$
+BEGIN
+    PERFORM customer_apply_age_stats(ARRAY(
+        SELECT ROW(age, count(*))::customer_age_stats FROM inserted GROUP BY age));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_count_deleted_ages() RETURNS trigger AS $$
+BEGIN
+    PERFORM customer_apply_age_stats(ARRAY(
+        SELECT ROW(age, -count(*))::customer_age_stats FROM deleted GROUP BY age));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_count_updated_ages() RETURNS trigger AS $$
+BEGIN
+    PERFORM customer_apply_age_stats(ARRAY(
+        SELECT ROW(age, sum(delta))::customer_age_stats
+        FROM (SELECT age, 1 AS delta FROM updated
+              UNION ALL
+              SELECT age, -1 AS delta FROM previous) AS changes
+        GROUP BY age));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_reset_age_stats() RETURNS trigger AS $$
+BEGIN
+    UPDATE customer_age_stats SET customers = 0 WHERE customers <> 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_count_inserted_ages
+    AFTER INSERT ON customer
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_count_inserted_ages();
+
+CREATE TRIGGER customer_count_deleted_ages
+    AFTER DELETE ON customer
+    REFERENCING OLD TABLE AS deleted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_count_deleted_ages();
+
+CREATE TRIGGER customer_count_updated_ages
+    AFTER UPDATE ON customer
+    REFERENCING OLD TABLE AS previous NEW TABLE AS updated
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_count_updated_ages();
+
+CREATE TRIGGER customer_reset_age_stats
+    AFTER TRUNCATE ON customer
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_reset_age_stats();
@@ -0,0 +1,61 @@
+-- an outbox of customer changes, written by the statement that made them: every write path records its events and
+-- they commit or roll back with the change; a TRUNCATE records nothing
+CREATE TABLE customer_event (
+    id BIGSERIAL PRIMARY KEY,
+    -- ids are taken before commit, so they do not follow commit order; readers page by (tx, id) and stop short of
+    -- the oldest transaction still running, then no event can turn up behind a position already read
+    tx BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    type TEXT NOT NULL,
+    customer_id BIGINT NOT NULL,
+    name TEXT,
+    email TEXT,
+    age INT,
+    version BIGINT NOT NULL,
+    occurred_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX customer_event_tx_id_idx ON customer_event (tx, id);
+CREATE INDEX customer_event_occurred_at_idx ON customer_event (occurred_at);
+
+-- one notification per statement, and postgres folds repeats within a transaction, so a batch wakes listeners once
+CREATE FUNCTION customer_record_inserted() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_event(type, customer_id, name, email, age, version)
+    SELECT 'created', id, name, email, age, version FROM inserted ORDER BY id;
+    PERFORM pg_notify('customer_event', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_record_updated() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_event(type, customer_id, name, email, age, version)
+    SELECT 'updated', id, name, email, age, version FROM updated ORDER BY id;
+    PERFORM pg_notify('customer_event', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION customer_record_deleted() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_event(type, customer_id, version)
+    SELECT 'deleted', id, version FROM deleted ORDER BY id;
+    PERFORM pg_notify('customer_event', '');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_record_inserted
+    AFTER INSERT ON customer
+    REFERENCING NEW TABLE AS inserted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_record_inserted();
+
+CREATE TRIGGER customer_record_updated
+    AFTER UPDATE ON customer
+    REFERENCING NEW TABLE AS updated
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_record_updated();
+
+CREATE TRIGGER customer_record_deleted
+    AFTER DELETE ON customer
+    REFERENCING OLD TABLE AS deleted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_record_deleted();
@@ -0,0 +1,55 @@
+-- every write stamps the row with the next change sequence and the writing transaction, and every delete leaves a
+-- tombstone stamped the same way; a delta sync reads both after its token in (change_tx, change_seq) order, only up
+-- to the oldest transaction still running, see V8__Add_Customer_Event_Outbox.sql for why
+CREATE SEQUENCE customer_change_seq;
+
+-- the defaults number the existing rows while the table is rewritten, without firing the update triggers; the
+-- rewrite holds the table exclusively anyway, so the index is built right after it rather than concurrently
+ALTER TABLE customer
+    ADD COLUMN change_tx BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    ADD COLUMN change_seq BIGINT NOT NULL DEFAULT nextval('customer_change_seq');
+
+ALTER TABLE customer
+    ALTER COLUMN change_tx DROP DEFAULT,
+    ALTER COLUMN change_seq DROP DEFAULT;
+
+CREATE INDEX customer_change_idx ON customer (change_tx, change_seq);
+
+CREATE FUNCTION customer_stamp_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_tx := pg_current_xact_id()::text::bigint;
+    NEW.change_seq := nextval('customer_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_stamp_change
+    BEFORE INSERT OR UPDATE ON customer
+    FOR EACH ROW EXECUTE FUNCTION customer_stamp_change();
+
+-- a row per deleted customer, kept for good so that any token can still learn about every delete after it
+CREATE TABLE customer_tombstone (
+    customer_id BIGINT PRIMARY KEY,
+    change_tx BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    change_seq BIGINT NOT NULL DEFAULT nextval('customer_change_seq'),
+    deleted_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX customer_tombstone_change_idx ON customer_tombstone (change_tx, change_seq);
+
+CREATE FUNCTION customer_record_tombstones() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO customer_tombstone AS tombstone(customer_id)
+    SELECT id FROM deleted ORDER BY id
+    ON CONFLICT (customer_id) DO UPDATE SET
+        change_tx = excluded.change_tx,
+        change_seq = excluded.change_seq,
+        deleted_at = excluded.deleted_at;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_record_tombstones
+    AFTER DELETE ON customer
+    REFERENCING OLD TABLE AS deleted
+    FOR EACH STATEMENT EXECUTE FUNCTION customer_record_tombstones();
@@ -0,0 +1,25 @@
+package com.example.javaexample;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+public class AbstractR2DBCTest extends AbstractTestContainerTest {
+
+    private static ConnectionFactory getConnectionFactory() {
+        return ConnectionFactories.get(ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                .option(ConnectionFactoryOptions.HOST, postgreSQLContainer.getHost())
+                .option(ConnectionFactoryOptions.PORT, postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                .option(ConnectionFactoryOptions.DATABASE, postgreSQLContainer.getDatabaseName())
+                .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                .build());
+    }
+
+    protected DatabaseClient getDatabaseClient() {
+        return DatabaseClient.create(getConnectionFactory());
+    }
+}
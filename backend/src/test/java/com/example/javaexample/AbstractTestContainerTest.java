@@ -9,6 +9,8 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.util.Map;
+
 
 @Testcontainers
 public abstract class AbstractTestContainerTest {
@@ -21,7 +23,7 @@ public abstract class AbstractTestContainerTest {
                 postgreSQLContainer.getJdbcUrl(),
                 postgreSQLContainer.getUsername(),
                 postgreSQLContainer.getPassword()
-        ).load();
+        ).configuration(Map.of("flyway.postgresql.transactional.lock", "false")).load();
         flyway.migrate();
     }
     @Container
@@ -0,0 +1,96 @@
+package com.example.javaexample;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MethodTimingPostProcessorTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(MetricsConfiguration.class, TimedBeans.class);
+
+    @Test
+    void timesRepositoryAndServiceMethodsByOutcome() {
+        //Given
+        //When
+        //Then
+        contextRunner.run(context -> {
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            TestRepository repository = context.getBean(TestRepository.class);
+            TestService service = context.getBean(TestService.class);
+
+            repository.find();
+            repository.find();
+            assertThatThrownBy(service::fail).isInstanceOf(IllegalStateException.class);
+
+            assertThat(registry.get(MethodTimingPostProcessor.DAO_TIMER)
+                    .tags("class", "TestRepository", "method", "find", "outcome", "success")
+                    .timer()
+                    .count()).isEqualTo(2);
+            assertThat(registry.get(MethodTimingPostProcessor.SERVICE_TIMER)
+                    .tags("class", "TestService", "method", "fail", "outcome", "error")
+                    .timer()
+                    .count()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void leavesReactiveMethodsUntimed() {
+        //Given
+        //When
+        //Then
+        contextRunner.run(context -> {
+            context.getBean(TestService.class).findLater().block();
+
+            assertThat(context.getBean(MeterRegistry.class).find(MethodTimingPostProcessor.SERVICE_TIMER)
+                    .tag("method", "findLater")
+                    .timer()).isNull();
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class TimedBeans {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TestRepository testRepository() {
+            return new TestRepository();
+        }
+
+        @Bean
+        TestService testService() {
+            return new TestService();
+        }
+    }
+
+    @Repository
+    static class TestRepository {
+        public String find() {
+            return "found";
+        }
+    }
+
+    @Service
+    static class TestService {
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+
+        public Mono<String> findLater() {
+            return Mono.just("found");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.javaexample;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProfilingDataSourceTest {
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private final SqlStatementProfiler profiler = new SqlStatementProfiler(Duration.ofSeconds(1), 0, 10, 10);
+
+    @Test
+    void profilesQueriesAndCountsTheRowsRead() throws SQLException {
+        //Given
+        String sql = "SELECT id FROM customer WHERE age > ?";
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(sql)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        ProfilingDataSource underTest = new ProfilingDataSource(dataSource, profiler);
+
+        //When
+        try (Connection con = underTest.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong(1);
+            }
+        }
+
+        //Then
+        SqlStatementProfiler.StatementSnapshot snapshot = profiler.topStatements(1).get(0);
+        assertThat(snapshot.sql()).isEqualTo(sql);
+        assertThat(snapshot.calls()).isEqualTo(1);
+        assertThat(snapshot.rows()).isEqualTo(2);
+    }
+
+    @Test
+    void profilesFailedUpdatesAndBatches() throws SQLException {
+        //Given
+        String sql = "UPDATE customer SET age = ? WHERE id = ?";
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(sql)).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1, PreparedStatement.SUCCESS_NO_INFO});
+        when(statement.executeUpdate()).thenThrow(new SQLException("deadlock detected"));
+        ProfilingDataSource underTest = new ProfilingDataSource(dataSource, profiler);
+
+        //When
+        PreparedStatement ps = underTest.getConnection().prepareStatement(sql);
+        ps.executeBatch();
+
+        //Then
+        assertThatThrownBy(ps::executeUpdate).isInstanceOf(SQLException.class).hasMessage("deadlock detected");
+        SqlStatementProfiler.StatementSnapshot snapshot = profiler.topStatements(1).get(0);
+        assertThat(snapshot.calls()).isEqualTo(2);
+        assertThat(snapshot.errors()).isEqualTo(1);
+        assertThat(snapshot.rows()).isEqualTo(2);
+    }
+
+    @Test
+    void profilesPlainStatementsByTheirSql() throws SQLException {
+        //Given
+        String sql = "SELECT count(*) FROM customer";
+        Statement plainStatement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(plainStatement);
+        when(plainStatement.execute(sql)).thenReturn(true);
+        when(plainStatement.getResultSet()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        ProfilingDataSource underTest = new ProfilingDataSource(dataSource, profiler);
+
+        //When
+        try (Statement st = underTest.getConnection().createStatement()) {
+            st.execute(sql);
+            try (ResultSet rs = st.getResultSet()) {
+                while (rs.next()) {
+                    rs.getLong(1);
+                }
+            }
+        }
+
+        //Then
+        SqlStatementProfiler.StatementSnapshot snapshot = profiler.topStatements(1).get(0);
+        assertThat(snapshot.sql()).isEqualTo(sql);
+        assertThat(snapshot.calls()).isEqualTo(1);
+        assertThat(snapshot.rows()).isEqualTo(1);
+    }
+
+    @Test
+    void unwrapReachesTheDriverConnection() throws SQLException {
+        //Given
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        ProfilingDataSource underTest = new ProfilingDataSource(dataSource, profiler);
+
+        //When
+        Connection con = underTest.getConnection();
+
+        //Then
+        assertThat(con.unwrap(PGConnection.class)).isSameAs(pgConnection);
+        assertThat(con).isEqualTo(con).isNotEqualTo(connection);
+    }
+}
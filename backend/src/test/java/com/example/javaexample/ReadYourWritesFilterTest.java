@@ -0,0 +1,61 @@
+package com.example.javaexample;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter underTest = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+    @Test
+    void writesPinTheClientToThePrimary() throws Exception {
+        //Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        //When
+        underTest.doFilter(request, response, chain(pinned));
+
+        //Then
+        assertThat(pinned).isTrue();
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE))
+                .startsWith(ReadYourWritesFilter.COOKIE_NAME + "=")
+                .contains("Max-Age=5");
+        assertThat(ReplicaRoutingDataSource.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void readsStayOnThePrimaryUntilTheWindowEnds() throws Exception {
+        //Given
+        MockHttpServletRequest recent = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        recent.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() + 5_000)));
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(System.currentTimeMillis() - 1)));
+        AtomicBoolean recentPinned = new AtomicBoolean();
+        AtomicBoolean expiredPinned = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        //When
+        underTest.doFilter(recent, response, chain(recentPinned));
+        underTest.doFilter(expired, new MockHttpServletResponse(), chain(expiredPinned));
+
+        //Then
+        assertThat(recentPinned).isTrue();
+        assertThat(expiredPinned).isFalse();
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).isNull();
+    }
+
+    private static FilterChain chain(AtomicBoolean pinned) {
+        return (request, response) -> pinned.set(ReplicaRoutingDataSource.isPinnedToPrimary());
+    }
+}
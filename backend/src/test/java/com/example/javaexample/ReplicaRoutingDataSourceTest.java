@@ -0,0 +1,162 @@
+package com.example.javaexample;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private HikariDataSource primary;
+    @Mock
+    private HikariDataSource firstReplica;
+    @Mock
+    private HikariDataSource secondReplica;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+        ReplicaRoutingDataSource.unstick();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    @Test
+    void writesGoToThePrimary() throws SQLException {
+        //Given
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica), ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        //When
+        use(underTest);
+
+        //Then
+        verify(primary).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    void readOnlyWorkRotatesOverReplicas() throws SQLException {
+        //Given
+        when(firstReplica.getConnection()).thenReturn(mock(Connection.class));
+        when(secondReplica.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        readOnly();
+
+        //When
+        use(underTest);
+        use(underTest);
+        use(underTest);
+
+        //Then
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void readOnlyWorkGoesToTheLeastLoadedReplica() throws SQLException {
+        //Given
+        HikariPoolMXBean busy = mock(HikariPoolMXBean.class);
+        HikariPoolMXBean idle = mock(HikariPoolMXBean.class);
+        when(busy.getActiveConnections()).thenReturn(8);
+        when(idle.getActiveConnections()).thenReturn(1);
+        when(firstReplica.getHikariPoolMXBean()).thenReturn(busy);
+        when(secondReplica.getHikariPoolMXBean()).thenReturn(idle);
+        when(secondReplica.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), ReplicaRoutingDataSource.Selection.LEAST_LOADED);
+        readOnly();
+
+        //When
+        use(underTest);
+        use(underTest);
+
+        //Then
+        verify(secondReplica, times(2)).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    void pinnedThreadsReadFromThePrimary() throws SQLException {
+        //Given
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica), ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        readOnly();
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        //When
+        use(underTest);
+
+        //Then
+        verify(primary).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    @Test
+    void requestReadsStayOnTheReplicaOfItsFirstRead() throws SQLException {
+        //Given
+        when(firstReplica.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica, secondReplica), ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        readOnly();
+        ReplicaRoutingDataSource.stickToOneReplica();
+
+        //When
+        use(underTest);
+        use(underTest);
+        use(underTest);
+
+        //Then
+        verify(firstReplica, times(3)).getConnection();
+        verify(secondReplica, never()).getConnection();
+    }
+
+    @Test
+    void workOnThePrimaryKeepsAnEarlierPin() throws SQLException {
+        //Given
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(primary, List.of(firstReplica), ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+        readOnly();
+        ReplicaRoutingDataSource.pinToPrimary();
+
+        //When
+        ReplicaRoutingDataSource.onPrimary(() -> {
+        });
+        use(underTest);
+
+        //Then
+        assertThat(ReplicaRoutingDataSource.isPinnedToPrimary()).isTrue();
+        verify(primary).getConnection();
+        verify(firstReplica, never()).getConnection();
+    }
+
+    private static void readOnly() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    //the proxy only takes a pooled connection once a statement needs it
+    private static void use(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.javaexample;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SqlStatementProfilerTest {
+
+    @Test
+    void normalizeFoldsLiteralsAndPlaceholderLists() {
+        //Given
+        String sql = """
+                SELECT id, name FROM customer
+                WHERE  email = 'it''s@gmail.com' AND age > 18 AND id IN (?, ?,?) AND name2 = ?""";
+
+        //When
+        String normalized = SqlStatementProfiler.normalize(sql);
+
+        //Then
+        assertThat(normalized)
+                .isEqualTo("SELECT id, name FROM customer WHERE email = ? AND age > ? AND id IN (?) AND name2 = ?");
+        assertThat(SqlStatementProfiler.normalize("INSERT INTO customer(name, age) VALUES (?, ?), (?, ?), (?, ?)"))
+                .isEqualTo("INSERT INTO customer(name, age) VALUES (?)");
+    }
+
+    @Test
+    void recordAggregatesByNormalizedStatement() {
+        //Given
+        SqlStatementProfiler underTest = new SqlStatementProfiler(Duration.ofSeconds(1), 0, 10, 4);
+
+        //When
+        for (int i = 1; i <= 100; i++) {
+            underTest.record(underTest.statisticsOf("SELECT * FROM customer WHERE id = " + i), i * 1_000_000L, 1, false);
+        }
+        underTest.record(underTest.statisticsOf("DELETE FROM customer WHERE id = ?"), 2_000_000L, 0, true);
+
+        //Then
+        List<SqlStatementProfiler.StatementSnapshot> statements = underTest.topStatements(1);
+        assertThat(statements).hasSize(1);
+        SqlStatementProfiler.StatementSnapshot select = statements.get(0);
+        assertThat(select.sql()).isEqualTo("SELECT * FROM customer WHERE id = ?");
+        assertThat(select.calls()).isEqualTo(100);
+        assertThat(select.rows()).isEqualTo(100);
+        assertThat(select.totalMillis()).isEqualTo(5050.0);
+        assertThat(select.maxMillis()).isEqualTo(100.0);
+        assertThat(select.p50Millis()).isBetween(50.0, 50.0 * 1.125);
+        assertThat(select.p99Millis()).isBetween(99.0, 99.0 * 1.125);
+        assertThat(underTest.topStatements(10)).extracting(SqlStatementProfiler.StatementSnapshot::errors)
+                .containsExactly(0L, 1L);
+        assertThat(underTest.slowQueries()).isEmpty();
+    }
+
+    @Test
+    void slowQueriesKeepTheLastExecutionsNewestFirst() {
+        //Given
+        SqlStatementProfiler underTest = new SqlStatementProfiler(Duration.ofMillis(10), 0, 10, 2);
+        SqlStatementProfiler.Statistics statistics = underTest.statisticsOf("SELECT pg_sleep(?)");
+
+        //When
+        underTest.record(statistics, 11_000_000L, 0, false);
+        underTest.record(statistics, 1_000_000L, 0, false);
+        underTest.record(statistics, 12_000_000L, 0, false);
+        underTest.record(statistics, 13_000_000L, 0, true);
+
+        //Then
+        assertThat(underTest.slowQueries())
+                .extracting(SqlStatementProfiler.SlowQuery::durationMillis)
+                .containsExactly(13.0, 12.0);
+    }
+
+    @Test
+    void statementsPastTheLimitAreCountedTogether() {
+        //Given
+        SqlStatementProfiler underTest = new SqlStatementProfiler(Duration.ofSeconds(1), 0, 1, 1);
+
+        //When
+        underTest.record(underTest.statisticsOf("SELECT 1"), 1_000L, 1, false);
+        underTest.record(underTest.statisticsOf("SELECT now()"), 1_000L, 1, false);
+        underTest.record(underTest.statisticsOf("SELECT version()"), 1_000L, 1, false);
+
+        //Then
+        assertThat(underTest.topStatements(10))
+                .extracting(SqlStatementProfiler.StatementSnapshot::sql, SqlStatementProfiler.StatementSnapshot::calls)
+                .containsExactlyInAnyOrder(
+                        tuple("SELECT ?", 1L),
+                        tuple(SqlStatementProfiler.OTHER_STATEMENTS, 2L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.javaexample;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withConfiguration(AutoConfigurations.of(CacheAutoConfiguration.class))
+            .withUserConfiguration(CachingConfiguration.class, VirtualThreadConfiguration.class)
+            .withPropertyValues(
+                    "spring.cache.type=caffeine",
+                    "spring.cache.cache-names=customers",
+                    "spring.cache.caffeine.spec=maximumSize=100,recordStats"
+            );
+
+    @Test
+    void platformThreadsKeepSynchronousCache() {
+        //Given
+        //When
+        //Then
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(VirtualThreadPinningMonitor.class);
+            CaffeineCache cache = (CaffeineCache) context.getBean(CacheManager.class).getCache("customers");
+            assertThat(cache).isNotNull();
+            assertThat(cache.getNativeCache().policy().isRecordingStats()).isTrue();
+        });
+    }
+
+    @Test
+    void virtualThreadsLoadCacheEntriesOutsideTheMapLock() {
+        //Given
+        //When
+        //Then
+        contextRunner.withPropertyValues("spring.threads.virtual.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(VirtualThreadPinningMonitor.class);
+            assertThat(context.getBean(VirtualThreadPinningMonitor.class).isRunning()).isTrue();
+
+            CaffeineCache cache = (CaffeineCache) context.getBean(CacheManager.class).getCache("customers");
+            assertThat(cache).isNotNull();
+            assertThat(cache.getAsyncCache()).isNotNull();
+            assertThat(cache.getNativeCache().policy().isRecordingStats()).isTrue();
+            assertThat(cache.get(1L, () -> Thread.currentThread().isVirtual())).isEqualTo(true);
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @EnableCaching
+    static class CachingConfiguration {
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.javaexample.domain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCompactDataAccessServiceTest {
+
+    //small chunks so strings spill across several buffers
+    private final CustomerCompactDataAccessService underTest = new CustomerCompactDataAccessService(64);
+
+    @Test
+    void insertCustomerRoundTrips() {
+        //Given
+        Customer customer = new Customer("Brïce Adrien", "brice.adrien@gmail.com", 24);
+
+        //When
+        underTest.insertCustomer(customer);
+
+        //Then
+        assertThat(customer.getId()).isEqualTo(1L);
+        assertThat(underTest.getCustomerById(1L)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Brïce Adrien");
+            assertThat(c.getEmail()).isEqualTo("brice.adrien@gmail.com");
+            assertThat(c.getAge()).isEqualTo(24);
+        });
+        assertThat(underTest.existPersonWithEmail("brice.adrien@gmail.com")).isTrue();
+        assertThat(underTest.existPersonWithEmail("alex@gmail.com")).isFalse();
+    }
+
+    @Test
+    void insertCustomerIfAbsentRejectsKnownEmail() {
+        //Given
+        underTest.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+
+        //When
+        boolean inserted = underTest.insertCustomerIfAbsent(new Customer("Alex", "alex@gmail.com", 30));
+
+        //Then
+        assertThat(inserted).isFalse();
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void insertCustomersIsAllOrNothing() {
+        //Given
+        underTest.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+        List<Customer> customers = List.of(
+                new Customer("Jasmine", "jasmine@gmail.com", 19),
+                new Customer("Alex", "alex@gmail.com", 30)
+        );
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.insertCustomers(customers))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.existPersonWithEmail("jasmine@gmail.com")).isFalse();
+    }
+
+    @Test
+    void survivesGrowthAndPagesInIdOrder() {
+        //Given
+        List<Customer> customers = IntStream.rangeClosed(1, 5000)
+                .mapToObj(i -> new Customer("Customer " + i, "customer" + i + "@gmail.com", 18 + i % 60))
+                .toList();
+        underTest.insertCustomers(customers);
+
+        //When
+        List<Customer> page = underTest.getCustomers(4990L, 20);
+
+        //Then
+        assertThat(page).extracting(Customer::getId)
+                .containsExactlyElementsOf(IntStream.rangeClosed(4991, 5000).mapToObj(Long::valueOf).toList());
+        assertThat(underTest.getCustomerById(2500L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("customer2500@gmail.com"));
+        assertThat(underTest.findExistingEmails(Set.of("customer1@gmail.com", "nobody@gmail.com")))
+                .containsExactly("customer1@gmail.com");
+    }
+
+    @Test
+    void deleteCustomerKeepsOtherLookupsWorking() {
+        //Given
+        underTest.insertCustomers(IntStream.rangeClosed(1, 3000)
+                .mapToObj(i -> new Customer("Customer " + i, "customer" + i + "@gmail.com", 30))
+                .toList());
+
+        //When
+        IntStream.rangeClosed(1, 3000)
+                .filter(i -> i % 3 == 0)
+                .forEach(i -> assertThat(underTest.deleteCustomerById((long) i)).isTrue());
+
+        //Then
+        assertThat(underTest.deleteCustomerById(3L)).isFalse();
+        assertThat(underTest.size()).isEqualTo(2000);
+        assertThat(underTest.getCustomerById(3L)).isEmpty();
+        assertThat(underTest.existPersonWithEmail("customer3@gmail.com")).isFalse();
+        IntStream.rangeClosed(1, 3000)
+                .filter(i -> i % 3 != 0)
+                .forEach(i -> assertThat(underTest.existPersonWithEmail("customer" + i + "@gmail.com")).isTrue());
+        assertThat(underTest.getCustomers(0L, 3)).extracting(Customer::getId).containsExactly(1L, 2L, 4L);
+    }
+
+    @Test
+    void updateCustomerReindexesEmail() {
+        //Given
+        underTest.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+        underTest.insertCustomer(new Customer("Jasmine", "jasmine@gmail.com", 19));
+
+        //When
+        underTest.updateCustomer(new Customer(1L, "Alexandre", "alexandre@gmail.com", 22));
+
+        //Then
+        assertThat(underTest.getCustomerById(1L)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Alexandre");
+            assertThat(c.getEmail()).isEqualTo("alexandre@gmail.com");
+            assertThat(c.getAge()).isEqualTo(22);
+        });
+        assertThat(underTest.existPersonWithEmail("alex@gmail.com")).isFalse();
+        assertThatThrownBy(() -> underTest.updateCustomer(new Customer(2L, "Jasmine", "alexandre@gmail.com", 19)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void getCustomersMaterializesOnlyRequestedFields() {
+        //Given
+        underTest.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+
+        //When
+        List<Customer> page = underTest.getCustomers(0L, 1, CustomerField.parse("name"));
+
+        //Then
+        assertThat(page).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(1L);
+            assertThat(c.getName()).isEqualTo("Alex");
+            assertThat(c.getEmail()).isNull();
+            assertThat(c.getAge()).isNull();
+        });
+    }
+
+    @Test
+    void forEachCustomerVisitsLiveRowsInOrder() {
+        //Given
+        underTest.insertCustomers(IntStream.rangeClosed(1, 2500)
+                .mapToObj(i -> new Customer("Customer " + i, "customer" + i + "@gmail.com", 30))
+                .toList());
+        underTest.deleteCustomerById(1000L);
+        List<Long> visited = new ArrayList<>();
+
+        //When
+        underTest.forEachCustomer(customer -> visited.add(customer.getId()));
+
+        //Then
+        assertThat(visited).hasSize(2499).isSorted().doesNotContain(1000L);
+    }
+
+    @Test
+    void searchCustomersMatchesLiveRowsAfterTheCursor() {
+        //Given
+        underTest.insertCustomers(List.of(
+                new Customer("Alex Smith", "alex@gmail.com", 21),
+                new Customer("Jasmine", "jasmine@gmail.com", 19),
+                new Customer("Alexandra", "alexandra@gmail.com", 35),
+                new Customer("Alexis", "alexis@gmail.com", 40)
+        ));
+        underTest.deleteCustomerById(4L);
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria("ALEX", null, 20, null, CustomerSearchCriteria.Match.PREFIX);
+
+        //When
+        List<Customer> firstPage = underTest.searchCustomers(criteria, 0L, 1);
+        List<Customer> secondPage = underTest.searchCustomers(criteria, 1L, 10);
+
+        //Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(1L);
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(3L);
+    }
+
+    @Test
+    void getCustomerStatsFollowsWrites() {
+        //Given
+        underTest.insertCustomers(List.of(
+                new Customer("Alex", "alex@gmail.com", 21),
+                new Customer("Jasmine", "jasmine@gmail.com", 19),
+                new Customer("Paul", "paul@gmail.com", 21)
+        ));
+        underTest.deleteCustomerById(2L);
+        underTest.updateCustomer(new Customer(3L, "Paul", "paul@gmail.com", 30));
+
+        //When
+        CustomerStats stats = underTest.getCustomerStats();
+
+        //Then
+        assertThat(stats.count()).isEqualTo(2);
+        assertThat(stats.ageHistogram()).containsExactly(Map.entry(21, 1L), Map.entry(30, 1L));
+        assertThat(stats.averageAge()).isEqualTo(25.5);
+    }
+
+    @Test
+    void repeatedUpdatesDoNotGrowTheStringArea() {
+        //Given
+        underTest.insertCustomer(new Customer("Alex", "alex@gmail.com", 21));
+
+        //When
+        for (int i = 0; i < 10_000; i++) {
+            underTest.updateCustomer(new Customer(1L, "Alex " + i, "alex" + i + "@gmail.com", 21));
+        }
+
+        //Then
+        assertThat(underTest.offHeapBytes()).isLessThanOrEqualTo(64 * 8);
+        assertThat(underTest.getCustomerById(1L)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("Alex 9999");
+            assertThat(c.getEmail()).isEqualTo("alex9999@gmail.com");
+        });
+        assertThat(underTest.existPersonWithEmail("alex9999@gmail.com")).isTrue();
+        assertThat(underTest.existPersonWithEmail("alex9998@gmail.com")).isFalse();
+    }
+
+    @Test
+    void deletedRowsAreReclaimedAndLookupsSurviveCompaction() {
+        //Given
+        underTest.insertCustomer(new Customer("Kept", "kept@gmail.com", 40));
+
+        //When
+        for (int i = 0; i < 10_000; i++) {
+            Customer customer = new Customer("Customer " + i, "customer" + i + "@gmail.com", 30);
+            underTest.insertCustomer(customer);
+            underTest.deleteCustomerById(customer.getId());
+        }
+        Customer last = new Customer("Last", "last@gmail.com", 50);
+        underTest.insertCustomer(last);
+
+        //Then
+        assertThat(underTest.offHeapBytes()).isLessThanOrEqualTo(64 * 8);
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(underTest.getCustomers(0L, 10)).extracting(Customer::getId).containsExactly(1L, last.getId());
+        assertThat(underTest.getCustomerById(1L)).hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("kept@gmail.com"));
+        assertThat(underTest.existPersonWithEmail("customer9999@gmail.com")).isFalse();
+        assertThat(underTest.getCustomerStats().ageHistogram()).containsExactly(Map.entry(40, 1L), Map.entry(50, 1L));
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Kept", "kept@gmail.com", 40)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.AbstractJDBCTemplateTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerCopyDataAccessServiceTest extends AbstractJDBCTemplateTest {
+
+    private CustomerCopyDataAccessService underTest;
+    private CustomerJDBCDataAccessService customerJDBCDataAccessService;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJDBCTemplate();
+        underTest = new CustomerCopyDataAccessService(jdbcTemplate);
+        customerJDBCDataAccessService = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Test
+    void importCustomers() {
+        //Given
+        String existingEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String otherEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerJDBCDataAccessService.insertCustomer(new Customer(FAKER.name().fullName(), existingEmail, 20));
+
+        String csv = String.join("\n",
+                "name,email,age",
+                "Alex," + email + ",21",
+                "Jasmine," + otherEmail + ",19",
+                "\"Smith, Alex\"," + email + ",30",
+                "Brice," + existingEmail + ",36",
+                "Incomplete,,36"
+        );
+
+        //When
+        CustomerImportResult result = transactionTemplate.execute(status -> underTest.importCustomers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true
+        ));
+
+        //Then
+        assertThat(result).isEqualTo(new CustomerImportResult(5, 2, 3));
+        assertThat(customerJDBCDataAccessService.findExistingEmails(List.of(email, otherEmail)))
+                .containsExactlyInAnyOrder(email, otherEmail);
+    }
+}
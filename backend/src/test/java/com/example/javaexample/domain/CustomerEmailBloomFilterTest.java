@@ -0,0 +1,154 @@
+package com.example.javaexample.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEmailBloomFilterTest {
+
+    @Mock
+    private CustomerDAO customerDAO;
+
+    @Test
+    void answersMaybeUntilBuilt() {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, 1000, 0.01);
+
+        //When
+        //Then
+        assertThat(underTest.isReady()).isFalse();
+        assertThat(underTest.mightContain("alex@gmail.com")).isTrue();
+    }
+
+    @Test
+    void rebuildLoadsKnownEmails() {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, 1000, 0.01);
+        givenCustomers(
+                new Customer(1L, "Alex", "alex@gmail.com", 21),
+                new Customer(2L, "Jasmine", "jasmine@gmail.com", 19)
+        );
+
+        //When
+        underTest.rebuild();
+
+        //Then
+        assertThat(underTest.isReady()).isTrue();
+        assertThat(underTest.mightContain("alex@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("jasmine@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("brice.adrien@gmail.com")).isFalse();
+    }
+
+    @Test
+    void putMakesEmailKnown() {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, 1000, 0.01);
+        givenCustomers();
+        underTest.rebuild();
+
+        //When
+        underTest.put("brice.adrien@gmail.com");
+
+        //Then
+        assertThat(underTest.mightContain("brice.adrien@gmail.com")).isTrue();
+    }
+
+    @Test
+    void invalidateAnswersMaybeUntilRebuilt() {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, 1000, 0.01);
+        givenCustomers();
+        underTest.rebuild();
+
+        //When
+        underTest.invalidate();
+        //the rebuild scheduled by invalidate may still be running, in which case scheduleRebuild does not wait for it
+        while (!underTest.isReady()) {
+            underTest.scheduleRebuild().join();
+        }
+
+        //Then
+        assertThat(underTest.mightContain("brice.adrien@gmail.com")).isFalse();
+    }
+
+    @Test
+    void rebuildsRunOnTheFiltersOwnThreadUntilClosed() throws InterruptedException {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, 1000, 0.01);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return null;
+        }).when(customerDAO).forEachCustomer(any(Consumer.class));
+
+        //When
+        underTest.scheduleRebuild().join();
+        underTest.close();
+        underTest.scheduleRebuild().join();
+
+        //Then
+        assertThat(threads).containsExactly("customer-email-filter-rebuild");
+    }
+
+    @Test
+    void falsePositiveRateStaysCloseToConfiguredRate() {
+        //Given
+        int expectedInsertions = 10_000;
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, true, expectedInsertions, 0.01);
+        givenCustomers();
+        underTest.rebuild();
+        IntStream.range(0, expectedInsertions).forEach(i -> underTest.put("customer-" + i + "@gmail.com"));
+
+        //When
+        long falsePositives = IntStream.range(0, 100_000)
+                .filter(i -> underTest.mightContain("unknown-" + i + "@gmail.com"))
+                .count();
+
+        //Then
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(underTest.estimatedFalsePositiveRate()).isLessThan(0.02);
+        assertThat(underTest.memoryBytes()).isLessThan(expectedInsertions * 2L);
+    }
+
+    @Test
+    void disabledFilterAlwaysAnswersMaybe() {
+        //Given
+        CustomerEmailBloomFilter underTest = new CustomerEmailBloomFilter(customerDAO, false, 1000, 0.01);
+
+        //When
+        underTest.rebuild();
+
+        //Then
+        assertThat(underTest.mightContain("brice.adrien@gmail.com")).isTrue();
+    }
+
+    @Test
+    void willThrowWhenFalsePositiveRateIsInvalid() {
+        assertThatThrownBy(() -> new CustomerEmailBloomFilter(customerDAO, true, 1000, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("false-positive-rate must be between 0 and 1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenCustomers(Customer... customers) {
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(0);
+            for (Customer customer : customers) {
+                consumer.accept(customer);
+            }
+            return null;
+        }).when(customerDAO).forEachCustomer(any());
+    }
+}
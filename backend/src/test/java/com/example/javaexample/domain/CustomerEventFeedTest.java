@@ -0,0 +1,189 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.ResourceGoneException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerEventFeedTest {
+
+    private static final CustomerEventCursor START = new CustomerEventCursor(10, 1);
+
+    @Mock
+    private CustomerEventRepository customerEventRepository;
+
+    private CustomerEventFeed underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerEventFeed(customerEventRepository, 2, Duration.ofSeconds(1), Duration.ofDays(7),
+                100, Duration.ofSeconds(30), Runnable::run);
+        lenient().when(customerEventRepository.findHorizon()).thenReturn(CustomerEventCursor.START);
+    }
+
+    @Test
+    void subscribersAtTheSamePositionShareOnePageUntilCaughtUp() {
+        //Given
+        CustomerEvent first = event(11, 2);
+        CustomerEvent second = event(11, 3);
+        CustomerEvent third = event(12, 4);
+        when(customerEventRepository.findEventsAfter(START, 2)).thenReturn(List.of(first, second));
+        when(customerEventRepository.findEventsAfter(second.id(), 2)).thenReturn(List.of(third));
+        RecordingEmitter one = new RecordingEmitter(Integer.MAX_VALUE);
+        RecordingEmitter two = new RecordingEmitter(Integer.MAX_VALUE);
+        underTest.subscribe(START, one);
+        underTest.subscribe(START, two);
+
+        //When
+        underTest.dispatch();
+
+        //Then
+        //the comment that opened the stream, then the events
+        assertThat(one.sent).isEqualTo(4);
+        assertThat(two.sent).isEqualTo(4);
+        verify(customerEventRepository, times(1)).findEventsAfter(START, 2);
+        verify(customerEventRepository, times(1)).findEventsAfter(second.id(), 2);
+        verify(customerEventRepository, never()).findEventsAfter(third.id(), 2);
+    }
+
+    @Test
+    void subscriberWithoutPositionStartsAtTheLatestEvent() {
+        //Given
+        when(customerEventRepository.findLatestCursor()).thenReturn(START);
+        when(customerEventRepository.findEventsAfter(START, 2)).thenReturn(List.of());
+        underTest.subscribe(null, new RecordingEmitter(Integer.MAX_VALUE));
+
+        //When
+        underTest.dispatch();
+
+        //Then
+        verify(customerEventRepository).findEventsAfter(START, 2);
+    }
+
+    @Test
+    void goneSubscriberIsDropped() {
+        //Given
+        when(customerEventRepository.findEventsAfter(START, 2)).thenReturn(List.of(event(11, 2)));
+        underTest.subscribe(START, new RecordingEmitter(1));
+        underTest.dispatch();
+
+        //When
+        underTest.dispatch();
+
+        //Then
+        verify(customerEventRepository, times(1)).findEventsAfter(any(), anyInt());
+    }
+
+    @Test
+    void slowSubscriberTakesWhatFitsAndIsReadForOnItsOwn() {
+        //Given
+        List<Runnable> sends = new ArrayList<>();
+        underTest = new CustomerEventFeed(customerEventRepository, 2, Duration.ofSeconds(1), Duration.ofDays(7),
+                1, Duration.ofSeconds(30), sends::add);
+        CustomerEvent first = event(11, 2);
+        CustomerEvent second = event(11, 3);
+        when(customerEventRepository.findEventsAfter(START, 2)).thenReturn(List.of(first, second));
+        when(customerEventRepository.findEventsAfter(first.id(), 2)).thenReturn(List.of(second));
+        RecordingEmitter slow = new RecordingEmitter(Integer.MAX_VALUE);
+        underTest.subscribe(START, slow);
+
+        //When
+        underTest.dispatch();
+
+        //Then
+        //the buffer holds one event until its client reads it, nothing more is read for it meanwhile
+        verify(customerEventRepository, never()).findEventsAfter(first.id(), 2);
+        sends.forEach(Runnable::run);
+        assertThat(slow.sent).isEqualTo(2);
+        underTest.dispatch();
+        verify(customerEventRepository).findEventsAfter(first.id(), 2);
+    }
+
+    @Test
+    void subscriberWhoseBufferStaysFullIsDropped() {
+        //Given
+        List<Runnable> sends = new ArrayList<>();
+        underTest = new CustomerEventFeed(customerEventRepository, 2, Duration.ofSeconds(1), Duration.ofDays(7),
+                1, Duration.ofSeconds(30), sends::add);
+        when(customerEventRepository.findEventsAfter(START, 2)).thenReturn(List.of(event(11, 2)));
+        RecordingEmitter stuck = new RecordingEmitter(Integer.MAX_VALUE);
+        underTest.subscribe(START, stuck);
+        underTest.dispatch();
+
+        //When
+        underTest.dropStalledSubscribers(Instant.now().plus(Duration.ofMinutes(1)));
+        sends.forEach(Runnable::run);
+
+        //Then
+        assertThat(stuck.completed).isTrue();
+        assertThat(stuck.sent).isEqualTo(1);
+        underTest.dispatch();
+        verify(customerEventRepository, times(1)).findEventsAfter(any(), anyInt());
+    }
+
+    @Test
+    void subscriberResumingBeforeThePrunedEventsIsTurnedAway() {
+        //Given
+        when(customerEventRepository.findHorizon()).thenReturn(new CustomerEventCursor(10, 5));
+        RecordingEmitter emitter = new RecordingEmitter(Integer.MAX_VALUE);
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.subscribe(START, emitter))
+                .isInstanceOf(ResourceGoneException.class)
+                .hasMessageContaining("/api/v1/customers/changes");
+        assertThat(emitter.sent).isZero();
+        underTest.dispatch();
+        verify(customerEventRepository, never()).findEventsAfter(any(), anyInt());
+    }
+
+    private static CustomerEvent event(long tx, long id) {
+        return new CustomerEvent(new CustomerEventCursor(tx, id), CustomerEvent.Type.DELETED, id, 1, null, Instant.now());
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final int capacity;
+        private int sent;
+        private boolean completed;
+
+        //the client goes away after capacity sends
+        private RecordingEmitter(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            if (sent == capacity) {
+                throw new IOException("Broken pipe");
+            }
+            sent++;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.AbstractJDBCTemplateTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEventRepositoryTest extends AbstractJDBCTemplateTest {
+
+    private CustomerEventRepository underTest;
+    private CustomerJDBCDataAccessService customerDAO;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJDBCTemplate();
+        underTest = new CustomerEventRepository(jdbcTemplate);
+        customerDAO = new CustomerJDBCDataAccessService(jdbcTemplate, new CustomerRowMapper());
+    }
+
+    @Test
+    void everyWriteRecordsAnEventInOrder() {
+        //Given
+        CustomerEventCursor before = underTest.findLatestCursor();
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+        long id = customerDAO.getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        Customer update = new Customer(id, "Brice", email, 21);
+        customerDAO.updateCustomer(update);
+        customerDAO.deleteCustomerById(id);
+
+        //When
+        List<CustomerEvent> events = underTest.findEventsAfter(before, 10_000).stream()
+                .filter(event -> event.customerId() == id)
+                .toList();
+
+        //Then
+        assertThat(events).extracting(CustomerEvent::type).containsExactly(
+                CustomerEvent.Type.CREATED, CustomerEvent.Type.UPDATED, CustomerEvent.Type.DELETED);
+        assertThat(events.get(0).customer().getEmail()).isEqualTo(email);
+        assertThat(events.get(1).customer().getName()).isEqualTo("Brice");
+        assertThat(events.get(1).version()).isGreaterThan(events.get(0).version());
+        assertThat(events.get(2).customer()).isNull();
+        assertThat(underTest.findLatestCursor()).isEqualTo(events.get(2).id());
+    }
+
+    @Test
+    void eventsAfterTheLastOneAreEmpty() {
+        //Given
+        customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+        CustomerEventCursor latest = underTest.findLatestCursor();
+
+        //When
+        List<CustomerEvent> events = underTest.findEventsAfter(latest, 10);
+
+        //Then
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void deleteEventsBeforeKeepsNewerEvents() {
+        //Given
+        customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+        CustomerEventCursor latest = underTest.findLatestCursor();
+
+        //When
+        underTest.deleteEventsBefore(Instant.now().minusSeconds(3600));
+
+        //Then
+        assertThat(underTest.findLatestCursor()).isEqualTo(latest);
+    }
+
+    @Test
+    void deleteEventsBeforeMovesTheHorizonToTheNewestPrunedEvent() {
+        //Given
+        customerDAO.insertCustomer(new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+        CustomerEventCursor latest = underTest.findLatestCursor();
+
+        //When
+        int pruned = underTest.deleteEventsBefore(Instant.now().plusSeconds(60));
+        int prunedAgain = underTest.deleteEventsBefore(Instant.now().plusSeconds(60));
+
+        //Then
+        assertThat(pruned).isPositive();
+        assertThat(prunedAgain).isZero();
+        assertThat(underTest.findHorizon()).isEqualTo(latest);
+        assertThat(underTest.findEventsAfter(CustomerEventCursor.START, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.javaexample.domain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerInMemoryDataAccessServiceTest {
+
+    private CustomerInMemoryDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerInMemoryDataAccessService();
+    }
+
+    @Test
+    void insertCustomerAssignsNextId() {
+        //Given
+        Customer customer = new Customer("Brice", "brice.adrien@gmail.com", 24);
+
+        //When
+        underTest.insertCustomer(customer);
+
+        //Then
+        assertThat(customer.getId()).isEqualTo(3L);
+        assertThat(underTest.getCustomerById(3L))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo("brice.adrien@gmail.com"));
+        assertThat(underTest.existPersonWithEmail("brice.adrien@gmail.com")).isTrue();
+    }
+
+    @Test
+    void insertCustomerIfAbsentRejectsKnownEmail() {
+        //Given
+        Customer customer = new Customer("Alex", "alex@gmail.com", 30);
+
+        //When
+        boolean inserted = underTest.insertCustomerIfAbsent(customer);
+
+        //Then
+        assertThat(inserted).isFalse();
+        assertThat(underTest.getAllCustomers()).hasSize(2);
+    }
+
+    @Test
+    void insertCustomersIsAllOrNothing() {
+        //Given
+        List<Customer> customers = List.of(
+                new Customer("Brice", "brice.adrien@gmail.com", 24),
+                new Customer("Alex", "alex@gmail.com", 30)
+        );
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.insertCustomers(customers))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.getAllCustomers()).hasSize(2);
+        assertThat(underTest.existPersonWithEmail("brice.adrien@gmail.com")).isFalse();
+    }
+
+    @Test
+    void getCustomersPagesByKeyset() {
+        //Given
+        underTest.insertCustomer(new Customer("Brice", "brice.adrien@gmail.com", 24));
+
+        //When
+        List<Customer> page = underTest.getCustomers(1L, 2);
+
+        //Then
+        assertThat(page).extracting(Customer::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void searchCustomersMatchesSubstringAndAgeRangeByKeyset() {
+        //Given
+        underTest.insertCustomer(new Customer("Alexandra", "alexandra@gmail.com", 35));
+        underTest.insertCustomer(new Customer("Brice Alexis", "brice@gmail.com", 28));
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria("LEX", null, 20, 40, null);
+
+        //When
+        List<Customer> firstPage = underTest.searchCustomers(criteria, 0L, 2);
+        List<Customer> secondPage = underTest.searchCustomers(criteria, firstPage.get(1).getId(), 2);
+
+        //Then
+        assertThat(firstPage).extracting(Customer::getName).containsExactly("Alex", "Alexandra");
+        assertThat(secondPage).extracting(Customer::getName).containsExactly("Brice Alexis");
+    }
+
+    @Test
+    void searchCustomersMatchesShortPrefix() {
+        //Given
+        underTest.insertCustomer(new Customer("Brice", "brice@gmail.com", 24));
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(null, "a", null, null, CustomerSearchCriteria.Match.PREFIX);
+
+        //When
+        List<Customer> customers = underTest.searchCustomers(criteria, 0L, 10);
+
+        //Then
+        assertThat(customers).extracting(Customer::getEmail).containsExactly("alex@gmail.com");
+    }
+
+    @Test
+    void searchCustomersFollowsUpdatesAndDeletes() {
+        //Given
+        underTest.updateCustomer(new Customer(1L, "Brice", "alex@gmail.com", 21));
+        underTest.deleteCustomerById(2L);
+
+        //When
+        List<Customer> byOldName = underTest.searchCustomers(new CustomerSearchCriteria("alex", null, null, null, null), 0L, 10);
+        List<Customer> byNewName = underTest.searchCustomers(new CustomerSearchCriteria("bri", null, null, null, null), 0L, 10);
+        List<Customer> byAge = underTest.searchCustomers(new CustomerSearchCriteria(null, null, 19, 19, null), 0L, 10);
+
+        //Then
+        assertThat(byOldName).isEmpty();
+        assertThat(byNewName).extracting(Customer::getId).containsExactly(1L);
+        assertThat(byAge).isEmpty();
+    }
+
+    @Test
+    void getCustomerStatsFollowsWrites() {
+        //Given
+        underTest.insertCustomer(new Customer("Brice", "brice@gmail.com", 30));
+        underTest.updateCustomer(new Customer(1L, "Alex", "alex@gmail.com", 19));
+        underTest.deleteCustomerById(3L);
+
+        //When
+        CustomerStats stats = underTest.getCustomerStats();
+
+        //Then
+        assertThat(stats.count()).isEqualTo(2);
+        assertThat(stats.minAge()).isEqualTo(19);
+        assertThat(stats.maxAge()).isEqualTo(19);
+        assertThat(stats.averageAge()).isEqualTo(19.0);
+        assertThat(stats.ageHistogram()).containsExactly(Map.entry(19, 2L));
+    }
+
+    @Test
+    void readsReturnCopies() {
+        //Given
+        Customer customer = underTest.getCustomerById(1L).orElseThrow();
+
+        //When
+        customer.setName("Changed");
+
+        //Then
+        assertThat(underTest.getCustomerById(1L).orElseThrow().getName()).isEqualTo("Alex");
+    }
+
+    @Test
+    void updateCustomerMovesEmailIndex() {
+        //Given
+        Customer customer = underTest.getCustomerById(1L).orElseThrow();
+        customer.setEmail("alex.new@gmail.com");
+
+        //When
+        boolean updated = underTest.updateCustomer(customer);
+
+        //Then
+        assertThat(updated).isTrue();
+        assertThat(underTest.existPersonWithEmail("alex.new@gmail.com")).isTrue();
+        assertThat(underTest.existPersonWithEmail("alex@gmail.com")).isFalse();
+    }
+
+    @Test
+    void updateCustomerRejectsEmailOfAnotherCustomer() {
+        //Given
+        Customer customer = underTest.getCustomerById(1L).orElseThrow();
+        customer.setEmail("jasmine@gmail.com");
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.updateCustomer(customer))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.getCustomerById(1L).orElseThrow().getEmail()).isEqualTo("alex@gmail.com");
+    }
+
+    @Test
+    void deleteCustomerReleasesEmail() {
+        //Given
+        //When
+        boolean deleted = underTest.deleteCustomerById(2L);
+
+        //Then
+        assertThat(deleted).isTrue();
+        assertThat(underTest.deleteCustomerById(2L)).isFalse();
+        assertThat(underTest.updateCustomer(new Customer(2L, "Jasmine", "jasmine@gmail.com", 20))).isFalse();
+        assertThat(underTest.getCustomerById(2L)).isEmpty();
+        assertThat(underTest.findExistingEmails(Set.of("alex@gmail.com", "jasmine@gmail.com")))
+                .containsExactly("alex@gmail.com");
+    }
+
+    @Test
+    void concurrentInsertsOfSameEmailHaveOneWinner() throws Exception {
+        //Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Boolean>> inserts = IntStream.range(0, 64)
+                .<Callable<Boolean>>mapToObj(i -> () -> underTest.insertCustomerIfAbsent(
+                        new Customer("Brice " + i, "brice.adrien@gmail.com", 24)))
+                .toList();
+
+        //When
+        List<Future<Boolean>> results = executor.invokeAll(inserts);
+        executor.shutdown();
+
+        //Then
+        long winners = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                winners++;
+            }
+        }
+        assertThat(winners).isEqualTo(1);
+        assertThat(underTest.getAllCustomers()).hasSize(3);
+    }
+}
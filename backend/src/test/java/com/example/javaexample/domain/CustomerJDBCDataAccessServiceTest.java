@@ -4,8 +4,10 @@ import com.example.javaexample.AbstractJDBCTemplateTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -41,6 +43,98 @@ class CustomerJDBCDataAccessServiceTest extends AbstractJDBCTemplateTest {
         assertThat(customers.size()).isGreaterThan(0);
     }
 
+    @Test
+    void getCustomers() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+
+        //When
+        List<Customer> firstPage = underTest.getCustomers(0L, 2);
+        List<Customer> secondPage = underTest.getCustomers(firstPage.get(1).getId(), 2);
+
+        //Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+        assertThat(secondPage).isNotEmpty();
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.get(1).getId());
+    }
+
+    @Test
+    void forEachCustomer() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+
+        underTest.insertCustomer(customer);
+
+        //When
+        List<Customer> streamed = new ArrayList<>();
+        underTest.forEachCustomer(streamed::add);
+
+        //Then
+        assertThat(streamed)
+                .extracting(Customer::getEmail)
+                .contains(email);
+    }
+
+    @Test
+    void getCustomersSelectsOnlyRequestedFields() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+        underTest.insertCustomerIfAbsent(customer);
+
+        //When
+        List<Customer> page = underTest.getCustomers(customer.getId() - 1, 1, CustomerField.parse("email"));
+
+        //Then
+        assertThat(page).hasSize(1);
+        Customer projected = page.get(0);
+        assertThat(projected.getId()).isEqualTo(customer.getId());
+        assertThat(projected.getEmail()).isEqualTo(email);
+        assertThat(projected.getName()).isNull();
+        assertThat(projected.getAge()).isNull();
+    }
+
+    @Test
+    void forEachCustomerSelectsOnlyRequestedFields() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+        underTest.insertCustomerIfAbsent(customer);
+
+        //When
+        List<Customer> streamed = new ArrayList<>();
+        underTest.forEachCustomer(CustomerField.parse("age"), streamed::add);
+
+        //Then
+        assertThat(streamed)
+                .filteredOn(c -> c.getId().equals(customer.getId()))
+                .singleElement()
+                .satisfies(c -> {
+                    assertThat(c.getAge()).isEqualTo(20);
+                    assertThat(c.getEmail()).isNull();
+                });
+    }
+
     @Test
     void getCustomerById() {
         //Given
@@ -111,6 +205,79 @@ class CustomerJDBCDataAccessServiceTest extends AbstractJDBCTemplateTest {
                 });
     }
 
+    @Test
+    void insertCustomerIfAbsent() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 20);
+        Customer duplicate = new Customer(FAKER.name().fullName(), email, 30);
+
+        //When
+        boolean inserted = underTest.insertCustomerIfAbsent(customer);
+        boolean duplicateInserted = underTest.insertCustomerIfAbsent(duplicate);
+
+        //Then
+        assertThat(inserted).isTrue();
+        assertThat(duplicateInserted).isFalse();
+        assertThat(underTest.getCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> {
+                    assertThat(c.getName()).isEqualTo(customer.getName());
+                    assertThat(c.getAge()).isEqualTo(customer.getAge());
+                });
+        assertThat(duplicate.getId()).isNull();
+    }
+
+    @Test
+    void insertCustomers() {
+        //Given
+        List<Customer> customers = List.of(
+                new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20),
+                new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 30)
+        );
+
+        //When
+        underTest.insertCustomers(customers);
+
+        //Then
+        List<String> emails = customers.stream().map(Customer::getEmail).toList();
+        assertThat(underTest.findExistingEmails(emails)).containsExactlyInAnyOrderElementsOf(emails);
+    }
+
+    @Test
+    void insertCustomersIfAbsentSkipsTakenEmails() {
+        //Given
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String newEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20));
+        Customer taken = new Customer(FAKER.name().fullName(), takenEmail, 30);
+        Customer first = new Customer(FAKER.name().fullName(), newEmail, 40);
+        Customer second = new Customer(FAKER.name().fullName(), newEmail, 50);
+
+        //When
+        Set<String> inserted = underTest.insertCustomersIfAbsent(List.of(taken, first, second));
+
+        //Then
+        assertThat(inserted).containsExactly(newEmail);
+        assertThat(taken.getId()).isNull();
+        assertThat(second.getId()).isNull();
+        assertThat(underTest.getCustomerById(first.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getAge()).isEqualTo(40));
+    }
+
+    @Test
+    void findExistingEmails() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String unknownEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        //When
+        Set<String> result = underTest.findExistingEmails(List.of(email, unknownEmail));
+
+        //Then
+        assertThat(result).containsExactly(email);
+    }
+
     @Test
     void existPersonWithEmail() {
         //Given
@@ -172,12 +339,14 @@ class CustomerJDBCDataAccessServiceTest extends AbstractJDBCTemplateTest {
                 .orElseThrow();
 
         //When
-        underTest.deleteCustomer(fetchedCustomer);
         Long customerId = fetchedCustomer.getId();
+        boolean deleted = underTest.deleteCustomerById(customerId);
         Optional<Customer> optionalCustomer = underTest.getCustomerById(customerId);
 
         //Then
+        assertThat(deleted).isTrue();
         assertThat(optionalCustomer).isEmpty();
+        assertThat(underTest.deleteCustomerById(customerId)).isFalse();
     }
 
     @Test
@@ -203,10 +372,13 @@ class CustomerJDBCDataAccessServiceTest extends AbstractJDBCTemplateTest {
 
         //When
         Long customerId = fetchedCustomer.getId();
-        underTest.updateCustomer(fetchedCustomer);
+        boolean updated = underTest.updateCustomer(fetchedCustomer);
 
         Optional<Customer> updatedCustomer = underTest.getCustomerById(customerId);
 
+        assertThat(updated).isTrue();
+        assertThat(underTest.updateCustomer(new Customer(-1L, newName, email, 20))).isFalse();
+
         assertThat(updatedCustomer).satisfies(customer1 -> {
             assertThat(customer1.get().getId()).isEqualTo(customerId);
             assertThat(customer1.get().getName()).isEqualTo(newName);
@@ -214,4 +386,191 @@ class CustomerJDBCDataAccessServiceTest extends AbstractJDBCTemplateTest {
             assertThat(customer1.get().getAge()).isEqualTo(customer.getAge());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateCustomerBumpsRowAndTableVersion() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomerIfAbsent(customer);
+        CustomerVersion insertedVersion = underTest.getCustomerVersion(customer.getId()).orElseThrow();
+        CustomerVersion tableVersion = underTest.getTableVersion();
+
+        //When
+        customer.setAge(21);
+        underTest.updateCustomer(customer);
+
+        //Then
+        assertThat(insertedVersion.version()).isZero();
+        assertThat(underTest.getCustomerVersion(customer.getId())).hasValueSatisfying(version -> {
+            assertThat(version.version()).isEqualTo(1);
+            assertThat(version.updatedAt()).isAfterOrEqualTo(insertedVersion.updatedAt());
+        });
+        assertThat(underTest.getCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(1));
+        assertThat(underTest.getTableVersion().version()).isGreaterThan(tableVersion.version());
+    }
+
+    @Test
+    void getCustomerVersionIsEmptyForUnknownId() {
+        //When
+        Optional<CustomerVersion> version = underTest.getCustomerVersion(-1L);
+
+        //Then
+        assertThat(version).isEmpty();
+    }
+
+    @Test
+    void patchCustomerWritesOnlySuppliedFields() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomerIfAbsent(customer);
+
+        //When
+        CustomerUpdateResult result = underTest.patchCustomer(new Customer(customer.getId(), null, null, 21), 0L);
+
+        //Then
+        assertThat(result.status()).isEqualTo(CustomerUpdateResult.Status.UPDATED);
+        assertThat(result.version().version()).isEqualTo(1);
+        assertThat(underTest.getCustomerById(customer.getId())).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo(customer.getName());
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getAge()).isEqualTo(21);
+        });
+    }
+
+    @Test
+    void patchCustomerRejectsStaleVersion() {
+        //Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomerIfAbsent(customer);
+        underTest.patchCustomer(new Customer(customer.getId(), null, null, 21), 0L);
+
+        //When
+        CustomerUpdateResult result = underTest.patchCustomer(new Customer(customer.getId(), "Stale", null, null), 0L);
+
+        //Then
+        assertThat(result.status()).isEqualTo(CustomerUpdateResult.Status.VERSION_MISMATCH);
+        assertThat(underTest.getCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo(customer.getName()));
+    }
+
+    @Test
+    void patchCustomerReportsUnknownId() {
+        //When
+        CustomerUpdateResult result = underTest.patchCustomer(new Customer(-1L, "Nobody", null, null), null);
+
+        //Then
+        assertThat(result.status()).isEqualTo(CustomerUpdateResult.Status.NOT_FOUND);
+    }
+
+    @Test
+    void searchCustomersMatchesSubstringCaseInsensitivelyWithinAgeRange() {
+        //Given
+        String marker = UUID.randomUUID().toString().substring(0, 8);
+        List<Customer> customers = List.of(
+                new Customer("Ann " + marker.toUpperCase(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 25),
+                new Customer("Bob " + marker, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 60),
+                new Customer("Cid " + marker, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 30)
+        );
+        customers.forEach(underTest::insertCustomerIfAbsent);
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(marker, null, 20, 40, null);
+
+        //When
+        List<Customer> firstPage = underTest.searchCustomers(criteria, 0L, 1);
+        List<Customer> secondPage = underTest.searchCustomers(criteria, firstPage.get(0).getId(), 10);
+
+        //Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(customers.get(0).getId());
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(customers.get(2).getId());
+    }
+
+    @Test
+    void searchCustomersTreatsLikeWildcardsLiterally() {
+        //Given
+        String marker = UUID.randomUUID().toString().substring(0, 8);
+        Customer customer = new Customer(marker + "_100%", FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+        underTest.insertCustomerIfAbsent(customer);
+        underTest.insertCustomerIfAbsent(new Customer(marker + "x1000", FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+
+        //When
+        List<Customer> customers = underTest.searchCustomers(
+                new CustomerSearchCriteria(marker + "_100%", null, null, null, CustomerSearchCriteria.Match.PREFIX), 0L, 10);
+
+        //Then
+        assertThat(customers).extracting(Customer::getId).containsExactly(customer.getId());
+    }
+
+    @Test
+    void getCustomerStatsFollowsInsertsUpdatesAndDeletes() {
+        //Given
+        //ages no other test uses, so their counts only move with this test
+        CustomerStats before = underTest.getCustomerStats();
+        Customer customer = new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 201);
+        underTest.insertCustomerIfAbsent(customer);
+        underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 201),
+                new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 202)
+        ));
+        underTest.updateCustomer(new Customer(customer.getId(), customer.getName(), customer.getEmail(), 203));
+        underTest.deleteCustomerById(customer.getId());
+
+        //When
+        CustomerStats after = underTest.getCustomerStats();
+
+        //Then
+        assertThat(after.count()).isEqualTo(before.count() + 2);
+        assertThat(after.ageHistogram().getOrDefault(201, 0L)).isEqualTo(before.ageHistogram().getOrDefault(201, 0L) + 1);
+        assertThat(after.ageHistogram().getOrDefault(202, 0L)).isEqualTo(before.ageHistogram().getOrDefault(202, 0L) + 1);
+        assertThat(after.ageHistogram().getOrDefault(203, 0L)).isEqualTo(before.ageHistogram().getOrDefault(203, 0L));
+        assertThat(after.maxAge()).isGreaterThanOrEqualTo(202);
+    }
+
+    @Test
+    void getChangesSinceReturnsEachChangedCustomerOnceAndTombstones() {
+        //Given
+        String keptEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String deletedEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), keptEmail, 20));
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), deletedEmail, 30));
+        Long keptId = idOf(keptEmail);
+        Long deletedId = idOf(deletedEmail);
+        underTest.updateCustomer(new Customer(keptId, "Brice", keptEmail, 21));
+        underTest.deleteCustomerById(deletedId);
+
+        //When
+        List<CustomerChange> changes = underTest.getChangesSince(CustomerChangeToken.START, Integer.MAX_VALUE);
+
+        //Then
+        List<CustomerChange> ours = changes.stream()
+                .filter(change -> change.customerId() == keptId || change.customerId() == deletedId)
+                .toList();
+        assertThat(ours).hasSize(2);
+        assertThat(ours.get(0).customerId()).isEqualTo(keptId);
+        assertThat(ours.get(0).customer().getName()).isEqualTo("Brice");
+        assertThat(ours.get(1).customerId()).isEqualTo(deletedId);
+        assertThat(ours.get(1).isDeleted()).isTrue();
+        assertThat(underTest.getChangesSince(ours.get(1).token(), Integer.MAX_VALUE))
+                .extracting(CustomerChange::customerId)
+                .doesNotContain(keptId, deletedId);
+    }
+
+    private Long idOf(String email) {
+        return underTest.getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.javaexample.domain;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class CustomerJPADataAccessServiceTest {
 
@@ -14,12 +26,14 @@ class CustomerJPADataAccessServiceTest {
     private AutoCloseable autoCloseable;
     @Mock
     private CustomerRepository customerRepository;
+    @Mock
+    private EntityManager entityManager;
 
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJPADataAccessService(customerRepository);
+        underTest = new CustomerJPADataAccessService(customerRepository, entityManager);
     }
 
     @AfterEach
@@ -36,6 +50,34 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findAll();
     }
 
+    @Test
+    void getCustomers() {
+        //Given
+        Long after = 10L;
+        int limit = 20;
+
+        //When
+        underTest.getCustomers(after, limit);
+
+        //Then
+        verify(customerRepository).findByIdGreaterThanOrderById(after, PageRequest.ofSize(limit));
+    }
+
+    @Test
+    void forEachCustomer() {
+        //Given
+        Customer customer = new Customer(1L, "Brice Adrien", "brice.adrien@gmail.com", 36);
+        when(customerRepository.streamAllBy()).thenReturn(Stream.of(customer));
+        List<Customer> streamed = new ArrayList<>();
+
+        //When
+        underTest.forEachCustomer(streamed::add);
+
+        //Then
+        assertThat(streamed).containsExactly(customer);
+        verify(entityManager).detach(customer);
+    }
+
     @Test
     void getCustomerById() {
         //Given
@@ -60,6 +102,35 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).save(customer);
     }
 
+    @Test
+    void insertCustomerIfAbsent() {
+        //Given
+        Customer customer = new Customer("Brice Adrien", "brice.adrien@gmail.com", 36);
+        when(customerRepository.insertIfAbsent(customer.getName(), customer.getEmail(), customer.getAge())).thenReturn(1);
+
+        //When
+        boolean inserted = underTest.insertCustomerIfAbsent(customer);
+
+        //Then
+        assertThat(inserted).isTrue();
+    }
+
+    @Test
+    void insertCustomers() {
+        //Given
+        List<Customer> customers = IntStream.rangeClosed(0, CustomerJPADataAccessService.FLUSH_INTERVAL)
+                .mapToObj(i -> new Customer("Brice Adrien", "brice.adrien" + i + "@gmail.com", 36))
+                .toList();
+
+        //When
+        underTest.insertCustomers(customers);
+
+        //Then
+        verify(entityManager, times(customers.size())).persist(any(Customer.class));
+        verify(entityManager, times(1)).flush();
+        verify(entityManager, times(1)).clear();
+    }
+
     @Test
     void existPersonWithEmail() {
         //Given
@@ -73,26 +144,42 @@ class CustomerJPADataAccessServiceTest {
     }
 
     @Test
-    void deleteCustomer() {
+    void findExistingEmails() {
         //Given
-        Customer customer = new Customer("Brice Adrien", "brice.adrien@gmail.com", 36);
+        List<String> emails = List.of("brice.adrien@gmail.com");
 
         //When
-        underTest.deleteCustomer(customer);
+        underTest.findExistingEmails(emails);
 
         //Then
-        verify(customerRepository).delete(customer);
+        verify(customerRepository).findExistingEmails(emails);
+    }
+
+    @Test
+    void deleteCustomerById() {
+        //Given
+        Long id = 1L;
+        when(customerRepository.deleteByIdReturningCount(id)).thenReturn(1);
+
+        //When
+        boolean deleted = underTest.deleteCustomerById(id);
+
+        //Then
+        assertThat(deleted).isTrue();
+        verify(customerRepository, never()).findById(any());
     }
 
     @Test
     void updateCustomer() {
         //Given
-        Customer customer = new Customer("Brice Adrien", "brice.adrien@gmail.com", 36);
+        Customer customer = new Customer(1L, "Brice Adrien", "brice.adrien@gmail.com", 36);
+        when(customerRepository.updateCustomer(1L, "Brice Adrien", "brice.adrien@gmail.com", 36)).thenReturn(0);
 
         //When
-        underTest.updateCustomer(customer);
+        boolean updated = underTest.updateCustomer(customer);
 
         //Then
-        verify(customerRepository).save(customer);
+        assertThat(updated).isFalse();
+        verify(customerRepository, never()).save(any());
     }
 }
\ No newline at end of file
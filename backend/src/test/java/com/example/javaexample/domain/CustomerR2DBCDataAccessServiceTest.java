@@ -0,0 +1,156 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.AbstractR2DBCTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerR2DBCDataAccessServiceTest extends AbstractR2DBCTest {
+
+    private CustomerR2DBCDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2DBCDataAccessService(getDatabaseClient());
+    }
+
+    @Test
+    void getCustomers() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            insert(20);
+        }
+
+        //When
+        List<Customer> firstPage = underTest.getCustomers(0L, 2, CustomerField.ALL).collectList().block();
+        List<Customer> secondPage = underTest.getCustomers(firstPage.get(1).getId(), 2, CustomerField.ALL).collectList().block();
+
+        //Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage.get(0).getId()).isLessThan(firstPage.get(1).getId());
+        assertThat(secondPage).isNotEmpty();
+        assertThat(secondPage.get(0).getId()).isGreaterThan(firstPage.get(1).getId());
+    }
+
+    @Test
+    void getCustomersSelectsOnlyRequestedFields() {
+        //Given
+        Customer customer = insert(20);
+        Set<CustomerField> fields = Set.of(CustomerField.ID, CustomerField.EMAIL);
+
+        //When
+        List<Customer> customers = underTest.getCustomers(customer.getId() - 1, 1, fields).collectList().block();
+
+        //Then
+        assertThat(customers).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(customer.getId());
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getName()).isNull();
+            assertThat(c.getAge()).isNull();
+        });
+    }
+
+    @Test
+    void streamCustomersHonoursDemand() {
+        //Given
+        for (int i = 0; i < 3; i++) {
+            insert(20);
+        }
+
+        //When
+        //Then
+        StepVerifier.create(underTest.streamCustomers(CustomerField.ALL), 2)
+                .expectNextCount(2)
+                .thenRequest(1)
+                .expectNextCount(1)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void getCustomerById() {
+        //Given
+        Customer customer = insert(20);
+
+        //When
+        Customer actual = underTest.getCustomerById(customer.getId()).block();
+
+        //Then
+        assertThat(actual).isNotNull();
+        assertThat(actual.getName()).isEqualTo(customer.getName());
+        assertThat(actual.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(actual.getAge()).isEqualTo(customer.getAge());
+    }
+
+    @Test
+    void willReturnEmptyWhenGetCustomerByWrongId() {
+        //When
+        //Then
+        StepVerifier.create(underTest.getCustomerById(-1L))
+                .verifyComplete();
+    }
+
+    @Test
+    void insertCustomerIfAbsentRejectsTakenEmail() {
+        //Given
+        Customer customer = insert(20);
+        Customer duplicate = new Customer(FAKER.name().fullName(), customer.getEmail(), 30);
+
+        //When
+        Boolean inserted = underTest.insertCustomerIfAbsent(duplicate).block();
+
+        //Then
+        assertThat(inserted).isFalse();
+        assertThat(duplicate.getId()).isNull();
+    }
+
+    @Test
+    void updateCustomer() {
+        //Given
+        Customer customer = insert(20);
+        Customer update = new Customer(customer.getId(), "Updated", customer.getEmail(), 42);
+
+        //When
+        Boolean updated = underTest.updateCustomer(update).block();
+
+        //Then
+        assertThat(updated).isTrue();
+        assertThat(underTest.getCustomerById(customer.getId()).block())
+                .satisfies(c -> {
+                    assertThat(c.getName()).isEqualTo("Updated");
+                    assertThat(c.getAge()).isEqualTo(42);
+                });
+        assertThat(underTest.updateCustomer(new Customer(-1L, "Nobody", "nobody@gmail.com", 1)).block()).isFalse();
+    }
+
+    @Test
+    void deleteCustomerById() {
+        //Given
+        Customer customer = insert(20);
+
+        //When
+        Boolean deleted = underTest.deleteCustomerById(customer.getId()).block();
+
+        //Then
+        assertThat(deleted).isTrue();
+        assertThat(underTest.getCustomerById(customer.getId()).blockOptional()).isEmpty();
+        assertThat(underTest.deleteCustomerById(customer.getId()).block()).isFalse();
+    }
+
+    private Customer insert(int age) {
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                age
+        );
+        assertThat(underTest.insertCustomerIfAbsent(customer).block()).isTrue();
+        assertThat(customer.getId()).isNotNull();
+        return customer;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.DuplicateResourceException;
+import com.example.javaexample.exception.RequestValidationException;
+import com.example.javaexample.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerReactiveServiceTest {
+
+    @Mock
+    private CustomerReactiveDAO customerDAO;
+    @Mock
+    private CustomerService customerService;
+    @Mock
+    private CustomerEmailBloomFilter customerEmailFilter;
+    private CustomerReactiveService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerReactiveService(customerDAO, customerService, customerEmailFilter);
+    }
+
+    @Test
+    void getCustomersReturnsNextCursorWhenMoreRowsExist() {
+        //Given
+        List<Customer> customers = List.of(
+                new Customer(11L, "Brice Adrien", "brice.adrien@gmail.com", 36),
+                new Customer(12L, "Alex", "alex@gmail.com", 21),
+                new Customer(13L, "Jasmine", "jasmine@gmail.com", 19)
+        );
+        when(customerDAO.getCustomers(10L, 3, CustomerField.ALL)).thenReturn(Flux.fromIterable(customers));
+
+        //When
+        //Then
+        StepVerifier.create(underTest.getCustomers(10L, 2, CustomerField.ALL))
+                .assertNext(page -> {
+                    assertThat(page.customers()).containsExactly(customers.get(0), customers.get(1));
+                    assertThat(page.nextCursor()).isEqualTo(12L);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void willThrowWhenGetCustomerByIdReturnEmpty() {
+        //Given
+        when(customerDAO.getCustomerById(10L)).thenReturn(Mono.empty());
+
+        //When
+        //Then
+        StepVerifier.create(underTest.getCustomerById(10L))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(ResourceNotFoundException.class)
+                        .hasMessage("Customer with id 10 not found"))
+                .verify();
+    }
+
+    @Test
+    void addCustomer() {
+        //Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        when(customerDAO.insertCustomerIfAbsent(any(Customer.class))).thenReturn(Mono.just(true));
+
+        //When
+        StepVerifier.create(underTest.addCustomer(request))
+                .verifyComplete();
+
+        //Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).insertCustomerIfAbsent(customerArgumentCaptor.capture());
+        Customer capturedCustomer = customerArgumentCaptor.getValue();
+        assertThat(capturedCustomer.getName()).isEqualTo(request.name());
+        assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
+        assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
+        verify(customerEmailFilter).put(request.email());
+    }
+
+    @Test
+    void willThrowWhenEmailExistWhileAddCustomer() {
+        //Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        when(customerDAO.insertCustomerIfAbsent(any(Customer.class))).thenReturn(Mono.just(false));
+
+        //When
+        //Then
+        StepVerifier.create(underTest.addCustomer(request))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(DuplicateResourceException.class)
+                        .hasMessage("Customer with email alex@gmail.com already exist"))
+                .verify();
+        verify(customerEmailFilter, never()).put(any());
+    }
+
+    @Test
+    void deleteCustomer() {
+        //Given
+        when(customerDAO.deleteCustomerById(10L)).thenReturn(Mono.just(true));
+
+        //When
+        StepVerifier.create(underTest.deleteCustomer(10L))
+                .verifyComplete();
+
+        //Then
+        verify(customerEmailFilter).recordDeletion();
+    }
+
+    @Test
+    void willThrowWhenDeleteCustomerByIdNotExists() {
+        //Given
+        when(customerDAO.deleteCustomerById(10L)).thenReturn(Mono.just(false));
+
+        //When
+        //Then
+        StepVerifier.create(underTest.deleteCustomer(10L))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        verify(customerEmailFilter, never()).recordDeletion();
+    }
+
+    @Test
+    void willThrowWhenUpdateTakesAnotherCustomersEmail() {
+        //Given
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", "jasmine@gmail.com", 19);
+        when(customerDAO.updateCustomer(any(Customer.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException(
+                        "duplicate key value violates unique constraint \"customer_email_uk\"")));
+
+        //When
+        //Then
+        StepVerifier.create(underTest.updateCustomer(10L, request))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(DuplicateResourceException.class)
+                        .hasMessage("Customer with email jasmine@gmail.com already exist"))
+                .verify();
+    }
+
+    @Test
+    void willNotReportOtherIntegrityViolationsAsTakenEmail() {
+        //Given
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", "alex@gmail.com", 19);
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("customer_age_check");
+        when(customerDAO.updateCustomer(any(Customer.class))).thenReturn(Mono.error(violation));
+
+        //When
+        //Then
+        StepVerifier.create(underTest.updateCustomer(10L, request))
+                .expectErrorMatches(e -> e == violation)
+                .verify();
+    }
+
+    @Test
+    void willThrowWhenUpdateLeavesFieldsOut() {
+        //Given
+        CustomerUpdateRequest request = new CustomerUpdateRequest(null, "alex@gmail.com", 19);
+
+        //When
+        //Then
+        StepVerifier.create(underTest.updateCustomer(10L, request))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(RequestValidationException.class)
+                        .hasMessage("A customer needs a name, an email and an age"))
+                .verify();
+        verify(customerDAO, never()).updateCustomer(any());
+    }
+
+    @Test
+    void willThrowWhenRegistrationLeavesFieldsOut() {
+        //Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", null);
+
+        //When
+        //Then
+        StepVerifier.create(underTest.addCustomer(request))
+                .expectError(RequestValidationException.class)
+                .verify();
+        verify(customerDAO, never()).insertCustomerIfAbsent(any());
+    }
+}
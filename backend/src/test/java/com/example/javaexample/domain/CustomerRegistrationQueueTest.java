@@ -0,0 +1,121 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerRegistrationQueueTest {
+
+    @Mock
+    private CustomerEmailBloomFilter customerEmailFilter;
+    @Mock
+    private CustomerDAO customerDAO;
+
+    private CustomerRegistrationQueue underTest;
+
+    @AfterEach
+    void tearDown() {
+        if (underTest != null) {
+            underTest.stop();
+        }
+    }
+
+    @Test
+    void stopWritesEverythingQueuedInGroups() {
+        //Given
+        CustomerInMemoryDataAccessService store = new CustomerInMemoryDataAccessService();
+        underTest = new CustomerRegistrationQueue(store, customerEmailFilter, true, 100, 10, Duration.ofMinutes(1));
+        underTest.start();
+
+        //When
+        CustomerRegistrationResult created = underTest.submit(new Customer("Brice", "brice@gmail.com", 24));
+        CustomerRegistrationResult taken = underTest.submit(new Customer("Alex", "alex@gmail.com", 30));
+        CustomerRegistrationResult repeated = underTest.submit(new Customer("Brice", "brice@gmail.com", 25));
+        underTest.stop();
+
+        //Then
+        assertThat(created.status()).isEqualTo(CustomerRegistrationResult.Status.QUEUED);
+        assertThat(underTest.getResult(created.trackingId())).hasValueSatisfying(result -> {
+            assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.CREATED);
+            assertThat(store.getCustomerById(result.customerId()))
+                    .hasValueSatisfying(customer -> assertThat(customer.getAge()).isEqualTo(24));
+        });
+        assertThat(underTest.getResult(taken.trackingId())).hasValueSatisfying(result ->
+                assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.EMAIL_ALREADY_EXISTS));
+        assertThat(underTest.getResult(repeated.trackingId())).hasValueSatisfying(result ->
+                assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.EMAIL_ALREADY_EXISTS));
+        verify(customerEmailFilter).put("brice@gmail.com");
+        assertThatThrownBy(() -> underTest.submit(new Customer("Jasmine", "jasmine.new@gmail.com", 20)))
+                .isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void fullQueueRejectsRegistrations() throws InterruptedException {
+        //Given
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(customerDAO.insertCustomersIfAbsent(any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return Set.of();
+        });
+        underTest = new CustomerRegistrationQueue(customerDAO, customerEmailFilter, true, 1, 10, Duration.ofMinutes(1));
+        underTest.start();
+        underTest.submit(new Customer("Brice", "brice@gmail.com", 24));
+        writing.await();
+        underTest.submit(new Customer("Alex", "alex.new@gmail.com", 30));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.submit(new Customer("Jasmine", "jasmine.new@gmail.com", 20)))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessage("The registration queue is full, retry later");
+        release.countDown();
+    }
+
+    @Test
+    void failedGroupIsRetriedOneByOne() {
+        //Given
+        when(customerDAO.insertCustomersIfAbsent(any())).thenAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            if (customers.size() > 1 || customers.get(0).getEmail().equals("bad@gmail.com")) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            return Set.of(customers.get(0).getEmail());
+        });
+        underTest = new CustomerRegistrationQueue(customerDAO, customerEmailFilter, false, 10, 10, Duration.ofMinutes(1));
+        CustomerRegistrationResult good = new CustomerRegistrationResult(
+                UUID.randomUUID(), "brice@gmail.com", CustomerRegistrationResult.Status.QUEUED, null);
+        CustomerRegistrationResult bad = new CustomerRegistrationResult(
+                UUID.randomUUID(), "bad@gmail.com", CustomerRegistrationResult.Status.QUEUED, null);
+
+        //When
+        underTest.write(List.of(
+                new CustomerRegistrationQueue.Registration(new Customer("Brice", "brice@gmail.com", 24), good),
+                new CustomerRegistrationQueue.Registration(new Customer("Bad", "bad@gmail.com", 24), bad)
+        ));
+
+        //Then
+        assertThat(underTest.getResult(good.trackingId())).hasValueSatisfying(result ->
+                assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.CREATED));
+        assertThat(underTest.getResult(bad.trackingId())).hasValueSatisfying(result ->
+                assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.FAILED));
+    }
+}
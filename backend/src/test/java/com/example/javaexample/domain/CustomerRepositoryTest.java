@@ -48,6 +48,21 @@ class CustomerRepositoryTest extends AbstractTestContainerTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    void insertIfAbsent() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        //When
+        int inserted = underTest.insertIfAbsent(FAKER.name().fullName(), email, 20);
+        int duplicateInserted = underTest.insertIfAbsent(FAKER.name().fullName(), email, 30);
+
+        //Then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(duplicateInserted).isZero();
+        assertThat(underTest.existsByEmail(email)).isTrue();
+    }
+
     @Test
     void existWithEmailWillReturnFalseWhenPersonIsNotPresent() {
         //Given
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -19,11 +21,15 @@ class CustomerRowMapperTest {
         String name = "Brice Adrien";
         String email = "brice.adrien@gmail.com";
         int age = 36;
-        int id = 1;
-        when(resultSet.getInt("id")).thenReturn(id);
+        //ids step by the generator's allocation size, so they pass the int range long before the row count does
+        long id = Integer.MAX_VALUE + 50L;
+        when(resultSet.getLong("id")).thenReturn(id);
         when(resultSet.getString("name")).thenReturn(name);
         when(resultSet.getString("email")).thenReturn(email);
         when(resultSet.getInt("age")).thenReturn(age);
+        Instant updatedAt = Instant.parse("2024-01-01T10:15:30Z");
+        when(resultSet.getLong("version")).thenReturn(3L);
+        when(resultSet.getTimestamp("updated_at")).thenReturn(Timestamp.from(updatedAt));
 
         //When
         Customer customer = customerRowMapper.mapRow(resultSet, 1);
@@ -35,6 +41,8 @@ class CustomerRowMapperTest {
                     assertThat(c.getName()).isEqualTo(name);
                     assertThat(c.getEmail()).isEqualTo(email);
                     assertThat(c.getAge()).isEqualTo(age);
+                    assertThat(c.getVersion()).isEqualTo(3L);
+                    assertThat(c.getUpdatedAt()).isEqualTo(updatedAt);
                 });
 
 
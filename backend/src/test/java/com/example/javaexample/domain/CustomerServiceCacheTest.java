@@ -0,0 +1,118 @@
+package com.example.javaexample.domain;
+
+import com.example.javaexample.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig
+class CustomerServiceCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @Import(CustomerService.class)
+    static class Config {
+        @Bean
+        CacheManager cacheManager() {
+            return new CaffeineCacheManager(CustomerService.CUSTOMERS_CACHE);
+        }
+    }
+
+    @MockBean(name = "jdbcTemplateRepository")
+    private CustomerVersionedDAO customerDAO;
+    @MockBean
+    private CustomerCopyDataAccessService customerCopyDataAccessService;
+    @MockBean
+    private CustomerEmailBloomFilter customerEmailFilter;
+    @MockBean
+    private CustomerRegistrationQueue customerRegistrationQueue;
+    @Autowired
+    private CustomerService underTest;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final Long id = 1L;
+    private final Customer customer = new Customer(id, "Brice Adrien", "brice.adrien@gmail.com", 36);
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCache(CustomerService.CUSTOMERS_CACHE).clear();
+        when(customerDAO.getCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.patchCustomer(any(Customer.class), any()))
+                .thenReturn(CustomerUpdateResult.updated(new CustomerVersion(2L, Instant.parse("2024-01-01T10:15:30Z"))));
+        when(customerDAO.deleteCustomerById(id)).thenReturn(true);
+    }
+
+    @Test
+    void getCustomerByIdIsServedFromCache() {
+        //When
+        Customer first = underTest.getCustomerById(id);
+        Customer second = underTest.getCustomerById(id);
+
+        //Then
+        assertThat(first).isEqualTo(customer);
+        assertThat(second).isSameAs(first);
+        verify(customerDAO, times(1)).getCustomerById(id);
+    }
+
+    @Test
+    void updateCustomerEvictsCachedCustomer() {
+        //Given
+        underTest.getCustomerById(id);
+
+        //When
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", "alex@gmail.com", 21), null);
+        underTest.getCustomerById(id);
+
+        //Then
+        //one read to fill the cache and one after the eviction
+        verify(customerDAO, times(2)).getCustomerById(id);
+    }
+
+    @Test
+    void deleteCustomerEvictsCachedCustomer() {
+        //Given
+        underTest.getCustomerById(id);
+
+        //When
+        underTest.deleteCustomer(id);
+
+        //Then
+        assertThat(cacheManager.getCache(CustomerService.CUSTOMERS_CACHE).get(id)).isNull();
+    }
+
+    @Test
+    void getCustomerByIdAfterUpdateIsNotFilledFromALaggingReplica() {
+        //Given
+        Customer updated = new Customer(id, "Alex", "alex@gmail.com", 21);
+        //a replica that has not replayed the update yet still returns the old row
+        when(customerDAO.getCustomerById(id)).thenAnswer(invocation ->
+                Optional.of(ReplicaRoutingDataSource.isPinnedToPrimary() ? updated : customer));
+        underTest.getCustomerById(id);
+
+        //When
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", "alex@gmail.com", 21), null);
+        Customer afterUpdate = underTest.getCustomerById(id);
+
+        //Then
+        assertThat(afterUpdate.getName()).isEqualTo("Alex");
+        assertThat(ReplicaRoutingDataSource.isPinnedToPrimary()).isFalse();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.javaexample.domain;
 
 import com.example.javaexample.exception.DuplicateResourceException;
+import com.example.javaexample.exception.PreconditionFailedException;
+import com.example.javaexample.exception.RequestValidationException;
 import com.example.javaexample.exception.ResourceNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,12 +10,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -22,12 +39,18 @@ import static org.mockito.Mockito.when;
 class CustomerServiceTest {
 
     @Mock
-    private CustomerDAO customerDAO;
+    private CustomerVersionedDAO customerDAO;
+    @Mock
+    private CustomerCopyDataAccessService customerCopyDataAccessService;
+    @Mock
+    private CustomerEmailBloomFilter customerEmailFilter;
+    @Mock
+    private CustomerRegistrationQueue customerRegistrationQueue;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDAO);
+        underTest = new CustomerService(customerDAO, customerCopyDataAccessService, customerEmailFilter, customerRegistrationQueue);
     }
 
     @Test
@@ -38,6 +61,167 @@ class CustomerServiceTest {
         verify(customerDAO).getAllCustomers();
     }
 
+    @Test
+    void getCustomersReturnsNextCursorWhenMoreRowsExist() {
+        //Given
+        Long after = 10L;
+        int limit = 2;
+        List<Customer> customers = List.of(
+                new Customer(11L, "Brice Adrien", "brice.adrien@gmail.com", 36),
+                new Customer(12L, "Alex", "alex@gmail.com", 21),
+                new Customer(13L, "Jasmine", "jasmine@gmail.com", 19)
+        );
+        when(customerDAO.getCustomers(after, limit + 1, CustomerField.ALL)).thenReturn(customers);
+
+        //When
+        CustomerPage page = underTest.getCustomers(after, limit, CustomerField.ALL);
+
+        //Then
+        assertThat(page.customers()).containsExactly(customers.get(0), customers.get(1));
+        assertThat(page.nextCursor()).isEqualTo(12L);
+    }
+
+    @Test
+    void getCustomersReturnsNoCursorOnLastPage() {
+        //Given
+        List<Customer> customers = List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 21)
+        );
+        when(customerDAO.getCustomers(0L, CustomerService.DEFAULT_PAGE_SIZE + 1, CustomerField.ALL)).thenReturn(customers);
+
+        //When
+        CustomerPage page = underTest.getCustomers(null, null, CustomerField.ALL);
+
+        //Then
+        assertThat(page.customers()).containsExactlyElementsOf(customers);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void getCustomersCapsPageSize() {
+        //Given
+        when(customerDAO.getCustomers(0L, CustomerService.MAX_PAGE_SIZE + 1, CustomerField.ALL)).thenReturn(List.of());
+
+        //When
+        underTest.getCustomers(0L, Integer.MAX_VALUE, CustomerField.ALL);
+
+        //Then
+        verify(customerDAO).getCustomers(0L, CustomerService.MAX_PAGE_SIZE + 1, CustomerField.ALL);
+    }
+
+    @Test
+    void searchCustomersReturnsNextCursorWhenMoreRowsExist() {
+        //Given
+        CustomerSearchCriteria criteria = new CustomerSearchCriteria(" Ale ", null, 18, 30, null);
+        List<Customer> customers = List.of(
+                new Customer(11L, "Alex", "alex@gmail.com", 21),
+                new Customer(12L, "Alexandra", "alexandra@gmail.com", 25)
+        );
+        when(customerDAO.searchCustomers(criteria, 10L, 2)).thenReturn(customers);
+
+        //When
+        CustomerPage page = underTest.searchCustomers(criteria, 10L, 1);
+
+        //Then
+        assertThat(criteria.name()).isEqualTo("ale");
+        assertThat(page.customers()).containsExactly(customers.get(0));
+        assertThat(page.nextCursor()).isEqualTo(11L);
+    }
+
+    @Test
+    void willThrowWhenSearchHasNoCriteria() {
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.searchCustomers(new CustomerSearchCriteria(" ", null, null, null, null), null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A search needs a name, an email or an age range");
+        verify(customerDAO, never()).searchCustomers(any(), any(), eq(CustomerService.DEFAULT_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void willThrowWhenSearchTermIsTooShortToMatchAnywhere() {
+        //Given
+        CustomerSearchCriteria contains = new CustomerSearchCriteria("al", null, null, null, CustomerSearchCriteria.Match.CONTAINS);
+        CustomerSearchCriteria prefix = new CustomerSearchCriteria("al", null, null, null, CustomerSearchCriteria.Match.PREFIX);
+        when(customerDAO.searchCustomers(prefix, 0L, CustomerService.DEFAULT_PAGE_SIZE + 1)).thenReturn(List.of());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.searchCustomers(contains, null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Search terms need at least 3 characters, or match=prefix");
+        assertThat(underTest.searchCustomers(prefix, null, null).customers()).isEmpty();
+    }
+
+    @Test
+    void getChangesReturnsTheLastTokenOfAFullPage() {
+        //Given
+        CustomerChangeToken since = new CustomerChangeToken(100, 7);
+        List<CustomerChange> changes = List.of(
+                new CustomerChange(new CustomerChangeToken(100, 8), 11L, new Customer(11L, "Alex", "alex@gmail.com", 21)),
+                new CustomerChange(new CustomerChangeToken(101, 9), 12L, null),
+                new CustomerChange(new CustomerChangeToken(102, 10), 13L, new Customer(13L, "Jasmine", "jasmine@gmail.com", 19))
+        );
+        when(customerDAO.getChangesSince(since, 3)).thenReturn(changes);
+
+        //When
+        CustomerChanges page = underTest.getChanges("100-7", 2);
+
+        //Then
+        assertThat(page.customers()).extracting(Customer::getId).containsExactly(11L);
+        assertThat(page.deletedIds()).containsExactly(12L);
+        assertThat(page.token()).isEqualTo(new CustomerChangeToken(101, 9));
+        assertThat(page.hasMore()).isTrue();
+    }
+
+    @Test
+    void getChangesKeepsTheTokenWhenNothingChanged() {
+        //Given
+        when(customerDAO.getChangesSince(CustomerChangeToken.START, CustomerService.DEFAULT_PAGE_SIZE + 1)).thenReturn(List.of());
+
+        //When
+        CustomerChanges page = underTest.getChanges(null, null);
+
+        //Then
+        assertThat(page.customers()).isEmpty();
+        assertThat(page.token()).isEqualTo(CustomerChangeToken.START);
+        assertThat(page.hasMore()).isFalse();
+    }
+
+    @Test
+    void willThrowWhenChangeTokenIsInvalid() {
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.getChanges("yesterday", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid change token yesterday");
+        verify(customerDAO, never()).getChangesSince(any(), anyInt());
+    }
+
+    @Test
+    void getCustomerStats() {
+        //Given
+        CustomerStats stats = new CustomerStats(1, 21, 21, 21.0, new TreeMap<>(Map.of(21, 1L)));
+        when(customerDAO.getCustomerStats()).thenReturn(stats);
+
+        //When
+        //Then
+        assertThat(underTest.getCustomerStats()).isEqualTo(stats);
+    }
+
+    @Test
+    void streamCustomers() {
+        //Given
+        Consumer<Customer> consumer = customer -> {};
+        Set<CustomerField> fields = CustomerField.parse("name");
+
+        //When
+        underTest.streamCustomers(fields, consumer);
+
+        //Then
+        verify(customerDAO).forEachCustomer(fields, consumer);
+    }
+
     @Test
     void canGetCustomer() {
         //Given
@@ -55,6 +239,34 @@ class CustomerServiceTest {
                 .isEqualTo(customer);
     }
 
+    @Test
+    void getCustomerVersion() {
+        //Given
+        Long id = 1L;
+        CustomerVersion version = new CustomerVersion(4L, Instant.parse("2024-01-01T10:15:30Z"));
+        when(customerDAO.getCustomerVersion(id)).thenReturn(Optional.of(version));
+
+        //When
+        CustomerVersion result = underTest.getCustomerVersion(id);
+
+        //Then
+        assertThat(result).isEqualTo(version);
+        assertThat(result.eTag()).isEqualTo("\"4\"");
+    }
+
+    @Test
+    void willThrowWhenGetCustomerVersionReturnEmptyOptional() {
+        //Given
+        Long id = 1L;
+        when(customerDAO.getCustomerVersion(id)).thenReturn(Optional.empty());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.getCustomerVersion(id))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id %s not found".formatted(id));
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnEmptyOptional() {
         //Given
@@ -73,7 +285,7 @@ class CustomerServiceTest {
     void addCustomer() {
         //Given
         String email = "brice.miandji@gmail.com";
-        when(customerDAO.existPersonWithEmail(email)).thenReturn(false);
+        when(customerDAO.insertCustomerIfAbsent(any())).thenReturn(true);
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "Brice Adrien", email, 36
@@ -84,7 +296,8 @@ class CustomerServiceTest {
 
         //Then
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerDAO).insertCustomer(customerArgumentCaptor.capture());
+        verify(customerDAO).insertCustomerIfAbsent(customerArgumentCaptor.capture());
+        verify(customerDAO, never()).existPersonWithEmail(any());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
@@ -92,6 +305,7 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(request.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
+        verify(customerEmailFilter).put(email);
 
     }
 
@@ -99,7 +313,7 @@ class CustomerServiceTest {
     void willThrowWhenEmailExistsWhileAddingCustomer() {
         //Given
         String email = "brice.miandji@gmail.com";
-        when(customerDAO.existPersonWithEmail(email)).thenReturn(true);
+        when(customerDAO.insertCustomerIfAbsent(any())).thenReturn(false);
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest(
                 "Brice Adrien", email, 36
@@ -111,22 +325,200 @@ class CustomerServiceTest {
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Customer with email %s already exist".formatted(email));
 
-        verify(customerDAO, never()).insertCustomer(any());
+        verify(customerEmailFilter, never()).put(any());
 
     }
 
+    @Test
+    void queueCustomer() {
+        //Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Brice Adrien", "brice.miandji@gmail.com", 36);
+        CustomerRegistrationResult queued = new CustomerRegistrationResult(
+                UUID.randomUUID(), request.email(), CustomerRegistrationResult.Status.QUEUED, null);
+        when(customerRegistrationQueue.submit(any())).thenReturn(queued);
+
+        //When
+        CustomerRegistrationResult result = underTest.queueCustomer(request);
+
+        //Then
+        assertThat(result).isEqualTo(queued);
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerRegistrationQueue).submit(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getEmail()).isEqualTo(request.email());
+        verify(customerDAO, never()).insertCustomerIfAbsent(any());
+    }
+
+    @Test
+    void willThrowWhenQueuingIncompleteCustomer() {
+        //Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Brice Adrien", " ", 36);
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.queueCustomer(request))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A customer needs a name, an email and an age");
+        verify(customerRegistrationQueue, never()).submit(any());
+    }
+
+    @Test
+    void addCustomers() {
+        //Given
+        String existingEmail = "alex@gmail.com";
+        String newEmail = "brice.adrien@gmail.com";
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Brice Adrien", newEmail, 36),
+                new CustomerRegistrationRequest("Alex", existingEmail, 21),
+                new CustomerRegistrationRequest("Brice", newEmail, 30)
+        );
+        when(customerEmailFilter.mightContain(newEmail)).thenReturn(false);
+        when(customerEmailFilter.mightContain(existingEmail)).thenReturn(true);
+        when(customerDAO.findExistingEmails(List.of(existingEmail))).thenReturn(Set.of(existingEmail));
+        when(customerDAO.insertCustomersIfAbsent(any())).thenReturn(Set.of(newEmail));
+
+        //When
+        List<CustomerBatchRegistrationResult> results = underTest.addCustomers(requests);
+
+        //Then
+        assertThat(results).containsExactly(
+                new CustomerBatchRegistrationResult(0, newEmail, CustomerBatchRegistrationResult.Status.CREATED),
+                new CustomerBatchRegistrationResult(1, existingEmail, CustomerBatchRegistrationResult.Status.EMAIL_ALREADY_EXISTS),
+                new CustomerBatchRegistrationResult(2, newEmail, CustomerBatchRegistrationResult.Status.DUPLICATE_IN_REQUEST)
+        );
+
+        ArgumentCaptor<List<Customer>> customersArgumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).insertCustomersIfAbsent(customersArgumentCaptor.capture());
+        assertThat(customersArgumentCaptor.getValue())
+                .singleElement()
+                .satisfies(c -> {
+                    assertThat(c.getId()).isNull();
+                    assertThat(c.getName()).isEqualTo("Brice Adrien");
+                    assertThat(c.getEmail()).isEqualTo(newEmail);
+                    assertThat(c.getAge()).isEqualTo(36);
+                });
+        verify(customerEmailFilter).put(newEmail);
+    }
+
+    @Test
+    void addCustomersSkipsInsertWhenEveryEmailExists() {
+        //Given
+        String email = "alex@gmail.com";
+        when(customerEmailFilter.mightContain(email)).thenReturn(true);
+        when(customerDAO.findExistingEmails(List.of(email))).thenReturn(Set.of(email));
+
+        //When
+        List<CustomerBatchRegistrationResult> results = underTest.addCustomers(
+                List.of(new CustomerRegistrationRequest("Alex", email, 21))
+        );
+
+        //Then
+        assertThat(results)
+                .extracting(CustomerBatchRegistrationResult::status)
+                .containsExactly(CustomerBatchRegistrationResult.Status.EMAIL_ALREADY_EXISTS);
+        verify(customerDAO, never()).insertCustomersIfAbsent(any());
+    }
+
+    @Test
+    void addCustomersReportsEmailsRegisteredConcurrentlyAsExisting() {
+        //Given
+        String email = "alex@gmail.com";
+        String concurrentEmail = "jasmine@gmail.com";
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Alex", email, 21),
+                new CustomerRegistrationRequest("Jasmine", concurrentEmail, 19)
+        );
+        when(customerDAO.findExistingEmails(List.of())).thenReturn(Set.of());
+        when(customerDAO.insertCustomersIfAbsent(any())).thenReturn(Set.of(email));
+
+        //When
+        List<CustomerBatchRegistrationResult> results = underTest.addCustomers(requests);
+
+        //Then
+        assertThat(results).containsExactly(
+                new CustomerBatchRegistrationResult(0, email, CustomerBatchRegistrationResult.Status.CREATED),
+                new CustomerBatchRegistrationResult(1, concurrentEmail, CustomerBatchRegistrationResult.Status.EMAIL_ALREADY_EXISTS)
+        );
+        verify(customerEmailFilter).put(email);
+        verify(customerEmailFilter, never()).put(concurrentEmail);
+    }
+
+    @Test
+    void addCustomersReportsIncompleteItemsAsInvalid() {
+        //Given
+        String email = "alex@gmail.com";
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Jasmine", null, 19),
+                new CustomerRegistrationRequest("Alex", email, 21),
+                new CustomerRegistrationRequest(" ", "paul@gmail.com", 30),
+                new CustomerRegistrationRequest("Paul", "paul@gmail.com", null)
+        );
+        when(customerEmailFilter.mightContain(email)).thenReturn(false);
+        when(customerDAO.findExistingEmails(List.of())).thenReturn(Set.of());
+        when(customerDAO.insertCustomersIfAbsent(any())).thenReturn(Set.of(email));
+
+        //When
+        List<CustomerBatchRegistrationResult> results = underTest.addCustomers(requests);
+
+        //Then
+        assertThat(results)
+                .extracting(CustomerBatchRegistrationResult::status)
+                .containsExactly(
+                        CustomerBatchRegistrationResult.Status.INVALID,
+                        CustomerBatchRegistrationResult.Status.CREATED,
+                        CustomerBatchRegistrationResult.Status.INVALID,
+                        CustomerBatchRegistrationResult.Status.INVALID
+                );
+        verify(customerEmailFilter, never()).mightContain("paul@gmail.com");
+        ArgumentCaptor<List<Customer>> customersArgumentCaptor = ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).insertCustomersIfAbsent(customersArgumentCaptor.capture());
+        assertThat(customersArgumentCaptor.getValue())
+                .extracting(Customer::getEmail)
+                .containsExactly(email);
+    }
+
+    @Test
+    void willThrowWhenBatchIsTooLarge() {
+        //Given
+        List<CustomerRegistrationRequest> requests = Collections.nCopies(
+                CustomerService.MAX_BATCH_SIZE + 1,
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 21)
+        );
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.addCustomers(requests))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A batch can contain at most %s customers".formatted(CustomerService.MAX_BATCH_SIZE));
+        verify(customerDAO, never()).insertCustomersIfAbsent(any());
+    }
+
+    @Test
+    void importCustomers() {
+        //Given
+        InputStream csv = new ByteArrayInputStream("Alex,alex@gmail.com,21".getBytes(StandardCharsets.UTF_8));
+
+        when(customerCopyDataAccessService.importCustomers(csv, false)).thenReturn(new CustomerImportResult(1, 1, 0));
+
+        //When
+        CustomerImportResult result = underTest.importCustomers(csv, false);
+
+        //Then
+        assertThat(result).isEqualTo(new CustomerImportResult(1, 1, 0));
+        verify(customerEmailFilter).invalidate();
+    }
+
     @Test
     void willDeleteCustomerThatExistInDatabase() {
         //Given
         Long id = 1L;
-        Customer customer = new Customer(id, "Brice Adrien", "brice.adrien@gmail.com", 17);
-        when(customerDAO.getCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.deleteCustomerById(id)).thenReturn(true);
 
         //When
         underTest.deleteCustomer(id);
 
         //Then
-        verify(customerDAO).deleteCustomer(customer);
+        verify(customerDAO, never()).getCustomerById(any());
+        verify(customerEmailFilter).recordDeletion();
 
     }
 
@@ -134,7 +526,7 @@ class CustomerServiceTest {
     void willThrownWhenDeleteCustomerByIdWhenNotExist() {
         //Given
         Long id = 1L;
-        when(customerDAO.getCustomerById(id)).thenReturn(Optional.empty());
+        when(customerDAO.deleteCustomerById(id)).thenReturn(false);
 
         //When
         //Then
@@ -142,7 +534,7 @@ class CustomerServiceTest {
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id %s not found".formatted(id));
 
-        verify(customerDAO, never()).deleteCustomer(any());
+        verify(customerEmailFilter, never()).recordDeletion();
 
     }
 
@@ -154,17 +546,16 @@ class CustomerServiceTest {
                 "Brice Adrien", "brice.adrien@gmail.com", 36
 
         );
-        Customer customerInDB = new Customer(
-                id, "Brice Adrien", "brice.adri@gmail.com", 31
-        );
-        when(customerDAO.getCustomerById(id)).thenReturn(Optional.of(customerInDB));
+        CustomerVersion version = new CustomerVersion(3L, Instant.parse("2024-01-01T10:15:30Z"));
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenReturn(CustomerUpdateResult.updated(version));
 
         //When
-        underTest.updateCustomer(id, request);
+        CustomerVersion result = underTest.updateCustomer(id, request, null);
 
         //Then
+        assertThat(result).isEqualTo(version);
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerDAO).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDAO).patchCustomer(customerArgumentCaptor.capture(), isNull());
         Customer customerToUpdate = customerArgumentCaptor.getValue();
         assertThat(customerToUpdate.getId())
                 .isNotNull()
@@ -172,6 +563,8 @@ class CustomerServiceTest {
         assertThat(customerToUpdate.getName()).isEqualTo(request.name());
         assertThat(customerToUpdate.getEmail()).isEqualTo(request.email());
         assertThat(customerToUpdate.getAge()).isEqualTo(request.age());
+        verify(customerDAO, never()).getCustomerById(any());
+        verify(customerEmailFilter).put(request.email());
     }
 
     @Test
@@ -183,13 +576,99 @@ class CustomerServiceTest {
 
         );
 
-        when(customerDAO.getCustomerById(id)).thenReturn(Optional.empty());
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenReturn(CustomerUpdateResult.notFound());
 
         //When
         //Then
-        assertThatThrownBy(() -> underTest.updateCustomer(id, request))
+        assertThatThrownBy(() -> underTest.updateCustomer(id, request, null))
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("Customer with id %s not found", id);
-        verify(customerDAO, never()).updateCustomer(any());
+        verify(customerEmailFilter, never()).put(any());
+    }
+
+    @Test
+    void willThrowWhenUpdatingCustomerToATakenEmail() {
+        //Given
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", "alex@gmail.com", 21);
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenThrow(new DuplicateKeyException("customer_email_unique"));
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, request, null))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Customer with email alex@gmail.com already exist");
+    }
+
+    @Test
+    void willThrowWhenUpdateLeavesFieldsOut() {
+        //Given
+        CustomerUpdateRequest request = new CustomerUpdateRequest("Alex", null, 21);
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, request, 2L))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("A customer needs a name, an email and an age");
+        verify(customerDAO, never()).patchCustomer(any(), any());
+    }
+
+    @Test
+    void patchCustomer() {
+        //Given
+        Long id = 1L;
+        CustomerUpdateRequest request = new CustomerUpdateRequest(null, "alex@gmail.com", null);
+        CustomerVersion version = new CustomerVersion(3L, Instant.parse("2024-01-01T10:15:30Z"));
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenReturn(CustomerUpdateResult.updated(version));
+
+        //When
+        CustomerVersion result = underTest.patchCustomer(id, request, 2L);
+
+        //Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).patchCustomer(customerArgumentCaptor.capture(), eq(2L));
+        assertThat(customerArgumentCaptor.getValue()).satisfies(customer -> {
+            assertThat(customer.getId()).isEqualTo(id);
+            assertThat(customer.getName()).isNull();
+            assertThat(customer.getEmail()).isEqualTo(request.email());
+            assertThat(customer.getAge()).isNull();
+        });
+        assertThat(result).isEqualTo(version);
+        verify(customerEmailFilter).put(request.email());
+    }
+
+    @Test
+    void willThrowWhenPatchCustomerVersionDoesNotMatch() {
+        //Given
+        Long id = 1L;
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenReturn(CustomerUpdateResult.versionMismatch());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.patchCustomer(id, new CustomerUpdateRequest("Alex", null, null), 2L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id 1 was modified since version 2");
+        verify(customerEmailFilter, never()).put(any());
+    }
+
+    @Test
+    void willThrowWhenPatchCustomerNotFound() {
+        //Given
+        when(customerDAO.patchCustomer(any(Customer.class), any())).thenReturn(CustomerUpdateResult.notFound());
+
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1L, new CustomerUpdateRequest("Alex", null, null), null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("Customer with id 1 not found");
+    }
+
+    @Test
+    void willThrowWhenPatchCustomerHasNoFields() {
+        //When
+        //Then
+        assertThatThrownBy(() -> underTest.patchCustomer(1L, new CustomerUpdateRequest(null, null, null), null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No customer fields to update");
+        verify(customerDAO, never()).patchCustomer(any(), any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package com.example.javaexample.journey;
+
+import com.example.javaexample.domain.CustomerRegistrationRequest;
+import com.example.javaexample.domain.CustomerRegistrationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "customer.registration.async.enabled=true")
+public class CustomerAsyncRegistrationIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    public static final String API_ROOT_URL = "/api/v1/customers";
+
+    @Test
+    void canQueueCustomerAndTrackItsRegistration() throws InterruptedException {
+        String email = "queued-" + UUID.randomUUID() + "@gmail.com";
+
+        //the registration is accepted before it is written
+        CustomerRegistrationResult queued = register(email)
+                .expectStatus()
+                .isAccepted()
+                .expectHeader()
+                .exists("Location")
+                .expectBody(CustomerRegistrationResult.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(queued).isNotNull();
+        assertThat(queued.status()).isEqualTo(CustomerRegistrationResult.Status.QUEUED);
+
+        //and its tracking id reports the outcome once the group is committed
+        CustomerRegistrationResult result = awaitResult(queued.trackingId());
+        assertThat(result.status()).isEqualTo(CustomerRegistrationResult.Status.CREATED);
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", result.customerId())
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(email);
+
+        //registering the same email again is reported, not failed
+        CustomerRegistrationResult again = register(email)
+                .expectStatus()
+                .isAccepted()
+                .expectBody(CustomerRegistrationResult.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(again).isNotNull();
+        assertThat(awaitResult(again.trackingId()).status()).isEqualTo(CustomerRegistrationResult.Status.EMAIL_ALREADY_EXISTS);
+    }
+
+    @Test
+    void unknownTrackingIdIsNotFound() {
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/registrations/{trackingId}", UUID.randomUUID())
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    private WebTestClient.ResponseSpec register(String email) {
+        return webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("Queued", email, 30)), CustomerRegistrationRequest.class)
+                .exchange();
+    }
+
+    private CustomerRegistrationResult awaitResult(UUID trackingId) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            CustomerRegistrationResult result = webTestClient.get()
+                    .uri(API_ROOT_URL + "/registrations/{trackingId}", trackingId)
+                    .accept(APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerRegistrationResult.class)
+                    .returnResult()
+                    .getResponseBody();
+            if (result != null && result.status() != CustomerRegistrationResult.Status.QUEUED) {
+                return result;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Registration %s is still queued".formatted(trackingId));
+    }
+}
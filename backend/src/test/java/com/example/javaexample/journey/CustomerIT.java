@@ -1,6 +1,10 @@
 package com.example.javaexample.journey;
 
 import com.example.javaexample.domain.Customer;
+import com.example.javaexample.domain.CustomerBatchRegistrationResult;
+import com.example.javaexample.domain.CustomerChanges;
+import com.example.javaexample.domain.CustomerImportResult;
+import com.example.javaexample.domain.CustomerPage;
 import com.example.javaexample.domain.CustomerRegistrationRequest;
 import com.example.javaexample.domain.CustomerUpdateRequest;
 import com.github.javafaker.Faker;
@@ -9,18 +13,27 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+//the whole journey runs through the profiled connections, which are off by default
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "customer.sql-profiler.enabled=true")
 public class CustomerIT {
 
     @Autowired
@@ -31,6 +44,31 @@ public class CustomerIT {
 
     public static final String API_ROOT_URL = "/api/v1/customers";
 
+    private List<Customer> getAllCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        Long after = 0L;
+        while (after != null) {
+            Long cursor = after;
+            CustomerPage page = webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path(API_ROOT_URL)
+                            .queryParam("after", cursor)
+                            .queryParam("limit", 500)
+                            .build())
+                    .accept(APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerPage.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assert page != null;
+            customers.addAll(page.customers());
+            after = page.nextCursor();
+        }
+        return customers;
+    }
+
     @Test
     void canRegisterCustomer() {
         //create registration request
@@ -53,16 +91,7 @@ public class CustomerIT {
                 .expectStatus()
                 .isCreated();
         //get all customer
-        List<Customer> customers = webTestClient.get()
-                .uri(API_ROOT_URL)
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> customers = getAllCustomers();
 
 
 
@@ -115,15 +144,7 @@ public class CustomerIT {
                 .isCreated();
 
         //get all customer
-        List<Customer> customers = webTestClient.get()
-                .uri(API_ROOT_URL)
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {})
-                .returnResult()
-                .getResponseBody();
+        List<Customer> customers = getAllCustomers();
 
         assert customers != null;
         var id = customers.stream()
@@ -171,16 +192,7 @@ public class CustomerIT {
                 .isCreated();
 
         //Get All Customers
-        List<Customer> customers = webTestClient.get()
-                .uri(API_ROOT_URL)
-                .accept(APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                })
-                .returnResult()
-                .getResponseBody();
+        List<Customer> customers = getAllCustomers();
 
         //Get the id of Customer that we need to update
         assert customers != null;
@@ -220,5 +232,657 @@ public class CustomerIT {
                 })
                 .isEqualTo(expectedCustomer);
 
+        //a replacement needs every field
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(newName, newEmail, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+
+        //and may not take another customer's email
+        String otherEmail = name.toLowerCase() + "-" + UUID.randomUUID() + "@gmail.com";
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(name, otherEmail, age)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(newName, otherEmail, newAge)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(409);
+    }
+
+    @Test
+    void canStreamCustomers() {
+        //create a customer
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+        String name = fakerName.fullName();
+        String email = name.toLowerCase() + "-" + UUID.randomUUID().toString() + "@gmail.com";
+        int age = random.nextInt(1, 100);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                name, email, age
+        );
+
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerIT.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //stream all customers as ndjson
+        List<Customer> customers = webTestClient.get()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(customers)
+                .extracting(Customer::getEmail)
+                .contains(email);
+    }
+
+    @Test
+    void canGetSparseCustomerFields() {
+        //create a customer
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+        String name = fakerName.fullName();
+        String email = name.toLowerCase() + "-" + UUID.randomUUID().toString() + "@gmail.com";
+        int age = random.nextInt(1, 100);
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                name, email, age
+        );
+
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerIT.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        var id = getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        //only the requested fields and the id are serialized
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}?fields=name", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(id)
+                .jsonPath("$.name").isEqualTo(name)
+                .jsonPath("$.email").doesNotExist()
+                .jsonPath("$.age").doesNotExist();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?after={after}&limit=1&fields=email", id - 1)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].email").isEqualTo(email)
+                .jsonPath("$.customers[0].name").doesNotExist();
+
+        //unknown fields are rejected
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?fields=password")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canSearchCustomers() {
+        //create two customers sharing a name fragment
+        String marker = UUID.randomUUID().toString().substring(0, 8);
+        for (int age : new int[]{25, 70}) {
+            webTestClient.post()
+                    .uri(API_ROOT_URL)
+                    .accept(APPLICATION_JSON)
+                    .contentType(APPLICATION_JSON)
+                    .body(Mono.just(new CustomerRegistrationRequest(
+                            "Search " + marker + " " + age, marker + "-" + age + "@gmail.com", age)), CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isCreated();
+        }
+
+        //name substring and age range narrow it to one, page by page
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/search?name={name}&minAge=20&maxAge=30&limit=1", marker.toUpperCase())
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers.length()").isEqualTo(1)
+                .jsonPath("$.customers[0].email").isEqualTo(marker + "-25@gmail.com")
+                .jsonPath("$.nextCursor").doesNotExist();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/search?email={email}&match=prefix", marker)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers.length()").isEqualTo(2);
+
+        //a search without criteria is rejected
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/search")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canGetCustomerStats() {
+        //register a customer so there is something to count
+        String email = "stats-" + UUID.randomUUID() + "@gmail.com";
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("Stats", email, 42)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        String eTag = webTestClient.get()
+                .uri(API_ROOT_URL + "/stats")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").value(count -> assertThat(((Number) count).longValue()).isPositive())
+                .jsonPath("$.minAge").value(minAge -> assertThat((Integer) minAge).isLessThanOrEqualTo(42))
+                .jsonPath("$.maxAge").value(maxAge -> assertThat((Integer) maxAge).isGreaterThanOrEqualTo(42))
+                .jsonPath("$.ageHistogram.42").value(customers -> assertThat(((Number) customers).longValue()).isPositive())
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        //unchanged statistics revalidate like the customer list
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/stats")
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+    }
+
+    @Test
+    void canRegisterCustomersInBatch() {
+        //create a batch with a repeated email and an item without an email
+        Faker faker = new Faker();
+        String email = faker.name().fullName().toLowerCase() + "-" + UUID.randomUUID() + "@gmail.com";
+        String otherEmail = faker.name().fullName().toLowerCase() + "-" + UUID.randomUUID() + "@gmail.com";
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest(faker.name().fullName(), email, random.nextInt(1, 100)),
+                new CustomerRegistrationRequest(faker.name().fullName(), otherEmail, random.nextInt(1, 100)),
+                new CustomerRegistrationRequest(faker.name().fullName(), email, random.nextInt(1, 100)),
+                new CustomerRegistrationRequest(faker.name().fullName(), null, random.nextInt(1, 100))
+        );
+
+        List<CustomerBatchRegistrationResult> results = webTestClient.post()
+                .uri(API_ROOT_URL + "/batch")
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .bodyValue(requests)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerBatchRegistrationResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(results)
+                .extracting(CustomerBatchRegistrationResult::status)
+                .containsExactly(
+                        CustomerBatchRegistrationResult.Status.CREATED,
+                        CustomerBatchRegistrationResult.Status.CREATED,
+                        CustomerBatchRegistrationResult.Status.DUPLICATE_IN_REQUEST,
+                        CustomerBatchRegistrationResult.Status.INVALID
+                );
+
+        //make sure that both customers are present
+        assertThat(getAllCustomers())
+                .extracting(Customer::getEmail)
+                .contains(email, otherEmail);
+    }
+
+    @Test
+    void canImportCustomersFromCsv() {
+        //build a csv with one repeated email
+        Faker faker = new Faker();
+        String email = faker.name().fullName().toLowerCase() + "-" + UUID.randomUUID() + "@gmail.com";
+        String otherEmail = faker.name().fullName().toLowerCase() + "-" + UUID.randomUUID() + "@gmail.com";
+        String csv = String.join("\n",
+                "name,email,age",
+                "Alex," + email + "," + random.nextInt(1, 100),
+                "Jasmine," + otherEmail + "," + random.nextInt(1, 100),
+                "Brice," + email + "," + random.nextInt(1, 100)
+        );
+
+        webTestClient.post()
+                .uri(API_ROOT_URL + "/import")
+                .accept(APPLICATION_JSON)
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerImportResult.class)
+                .isEqualTo(new CustomerImportResult(3, 2, 1));
+
+        //make sure that both customers are present
+        assertThat(getAllCustomers())
+                .extracting(Customer::getEmail)
+                .contains(email, otherEmail);
+    }
+
+    @Test
+    void canRevalidateCustomerWithETag() {
+        //create a customer
+        String name = new Faker().name().fullName();
+        String email = "etag-" + UUID.randomUUID() + "@gmail.com";
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(name, email, 30)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        Long id = getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        //the first read carries the validators
+        String eTag = webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .exists("Last-Modified")
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        //an unchanged customer is not sent again
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        //an update changes the ETag
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(name, email, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value("ETag", newETag -> assertThat(newETag).isNotEqualTo(eTag))
+                .expectBody()
+                .jsonPath("$.age").isEqualTo(31);
+    }
+
+    @Test
+    void canRevalidateCustomerListWithETag() {
+        String eTag = webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CustomerPage.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        //any write to the table invalidates the list
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("ETag List", "etag-list-" + UUID.randomUUID() + "@gmail.com", 30)),
+                        CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .accept(APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void canPatchCustomerWithIfMatch() {
+        //create a customer
+        String name = new Faker().name().fullName();
+        String email = "if-match-" + UUID.randomUUID() + "@gmail.com";
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(name, email, 30)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        Long id = getAllCustomers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        String eTag = webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+
+        //patch only the age against the current version
+        String patchedETag = webTestClient.patch()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .contentType(APPLICATION_JSON)
+                .header("If-Match", eTag)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(patchedETag).isNotNull().isNotEqualTo(eTag);
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals("ETag", patchedETag)
+                .expectBody()
+                .jsonPath("$.name").isEqualTo(name)
+                .jsonPath("$.age").isEqualTo(31);
+
+        //a writer still holding the old ETag loses
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .contentType(APPLICATION_JSON)
+                .header("If-Match", eTag)
+                .body(Mono.just(new CustomerUpdateRequest("Lost Update", email, 40)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+
+        //any of a list of ETags may be the current one
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .contentType(APPLICATION_JSON)
+                .header("If-Match", eTag + ", " + patchedETag)
+                .body(Mono.just(new CustomerUpdateRequest(name, email, 32)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        //a missing customer fails the precondition, whether it was asked to exist or to match
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", -1)
+                .contentType(APPLICATION_JSON)
+                .header("If-Match", "*")
+                .body(Mono.just(new CustomerUpdateRequest(name, email, 32)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+
+        webTestClient.patch()
+                .uri(API_ROOT_URL + "/{id}", -1)
+                .contentType(APPLICATION_JSON)
+                .header("If-Match", eTag)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+
+        webTestClient.patch()
+                .uri(API_ROOT_URL + "/{id}", -1)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @Test
+    void canProfileStatements() {
+        //a customer list runs the keyset query
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        //the profile lists it with its calls and timings
+        webTestClient.get()
+                .uri("/actuator/sql?limit=500")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.statements[?(@.sql =~ /.*FROM customer.*/)].calls").isNotEmpty()
+                .jsonPath("$.statements[0].p99Millis").isNumber()
+                .jsonPath("$.slowQueries").isArray();
+    }
+
+    @Test
+    void canStreamCustomerEvents() {
+        //subscribe from the latest event
+        ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>> eventType = new ParameterizedTypeReference<>() {
+        };
+        var events = webTestClient.get()
+                .uri(API_ROOT_URL + "/events")
+                .accept(TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(eventType)
+                .getResponseBody();
+
+        //create a customer
+        Faker faker = new Faker();
+        String name = faker.name().fullName();
+        String email = name.toLowerCase() + "-" + UUID.randomUUID().toString() + "@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                name, email, random.nextInt(1, 100)
+        );
+
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //the creation is pushed with the new customer
+        ServerSentEvent<Map<String, Object>> created = events
+                .filter(event -> event.data() != null && event.data().get("customer") instanceof Map<?, ?> customer
+                        && email.equals(customer.get("email")))
+                .blockFirst(Duration.ofSeconds(30));
+
+        assertThat(created).isNotNull();
+        assertThat(created.event()).isEqualTo("created");
+        assertThat(created.id()).isNotBlank();
+        Number id = (Number) created.data().get("customerId");
+
+        //delete it
+        webTestClient.delete()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        //a client resuming after the creation gets the deletion next
+        ServerSentEvent<Map<String, Object>> deleted = webTestClient.get()
+                .uri(API_ROOT_URL + "/events")
+                .accept(TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", created.id())
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(eventType)
+                .getResponseBody()
+                .filter(event -> event.data() != null && id.equals(event.data().get("customerId")))
+                .blockFirst(Duration.ofSeconds(30));
+
+        assertThat(deleted).isNotNull();
+        assertThat(deleted.event()).isEqualTo("deleted");
+        assertThat(deleted.data()).doesNotContainKey("customer");
+    }
+
+    @Test
+    void canSyncCustomerChanges() {
+        //catch up with every change so far
+        CustomerChanges changes = syncCustomerChanges(null);
+
+        //create a customer
+        Faker faker = new Faker();
+        String name = faker.name().fullName();
+        String email = name.toLowerCase() + "-" + UUID.randomUUID().toString() + "@gmail.com";
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                name, email, random.nextInt(1, 100)
+        );
+
+        webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //the next sync returns it
+        changes = syncCustomerChanges(changes.token().toString());
+
+        Customer created = changes.customers().stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .findFirst()
+                .orElseThrow();
+
+        //delete it
+        webTestClient.delete()
+                .uri(API_ROOT_URL + "/{id}", created.getId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        //the next sync returns the deletion only
+        changes = syncCustomerChanges(changes.token().toString());
+
+        assertThat(changes.deletedIds()).contains(created.getId());
+        assertThat(changes.customers()).extracting(Customer::getId).doesNotContain(created.getId());
+    }
+
+    private CustomerChanges syncCustomerChanges(String since) {
+        List<Customer> customers = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        String token = since;
+        CustomerChanges page;
+        do {
+            String current = token;
+            page = webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path(API_ROOT_URL + "/changes")
+                            .queryParamIfPresent("since", Optional.ofNullable(current))
+                            .queryParam("limit", 500)
+                            .build())
+                    .accept(APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerChanges.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assert page != null;
+            customers.addAll(page.customers());
+            deletedIds.addAll(page.deletedIds());
+            token = page.token().toString();
+        } while (page.hasMore());
+        return new CustomerChanges(customers, deletedIds, page.token(), false);
     }
 }
@@ -0,0 +1,125 @@
+package com.example.javaexample.journey;
+
+import com.example.javaexample.domain.Customer;
+import com.example.javaexample.domain.CustomerRegistrationRequest;
+import com.example.javaexample.domain.CustomerUpdateRequest;
+import com.github.javafaker.Faker;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class CustomerReactiveIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    public static final String API_ROOT_URL = "/api/v1/customers";
+
+    @Test
+    void runsOnWebFlux() {
+        assertThat(applicationContext).isInstanceOf(ReactiveWebApplicationContext.class);
+    }
+
+    @Test
+    void canRegisterUpdateAndDeleteCustomer() {
+        //register a customer
+        String name = new Faker().name().fullName();
+        String email = "reactive-" + UUID.randomUUID() + "@gmail.com";
+        register(new CustomerRegistrationRequest(name, email, 30))
+                .expectStatus()
+                .isCreated();
+
+        //the same email again is a conflict
+        register(new CustomerRegistrationRequest(name, email, 30))
+                .expectStatus()
+                .isEqualTo(409);
+
+        //find it in the stream
+        List<Customer> customers = webTestClient.get()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .filter(c -> c.getEmail().equals(email))
+                .collectList()
+                .block();
+        assertThat(customers).hasSize(1);
+        Long id = customers.get(0).getId();
+
+        //a conditional update is refused rather than applied unchecked
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("Unchecked", email, 99)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(501);
+
+        //update it
+        webTestClient.put()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("Updated", email, 31)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}?fields=name,age", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Customer.class)
+                .value(customer -> {
+                    assertThat(customer.getName()).isEqualTo("Updated");
+                    assertThat(customer.getEmail()).isNull();
+                    assertThat(customer.getAge()).isEqualTo(31);
+                });
+
+        //delete it
+        webTestClient.delete()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        webTestClient.get()
+                .uri(API_ROOT_URL + "/{id}", id)
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    private WebTestClient.ResponseSpec register(CustomerRegistrationRequest request) {
+        return webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.javaexample.journey;
+
+import com.example.javaexample.ReplicaRoutingDataSource;
+import com.example.javaexample.domain.CustomerRegistrationRequest;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseCookie;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+//the primary database stands in for its own replica
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "customer.replicas.urls=${spring.datasource.url}")
+public class CustomerReplicaIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+    @Autowired
+    private DataSource dataSource;
+
+    public static final String API_ROOT_URL = "/api/v1/customers";
+
+    @Test
+    void readsGoToTheReplicaAndWritesPinTheClientToThePrimary() throws Exception {
+        HikariDataSource replica = dataSource.unwrap(ReplicaRoutingDataSource.class).getReplicas().get(0);
+
+        //a read opens the replica pool
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        assertThat(replica.getHikariPoolMXBean()).isNotNull();
+        assertThat(replica.getHikariPoolMXBean().getTotalConnections()).isPositive();
+
+        //a write hands out the read-your-writes cookie
+        ResponseCookie cookie = webTestClient.post()
+                .uri(API_ROOT_URL)
+                .accept(APPLICATION_JSON)
+                .contentType(APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("Replica", "replica-" + UUID.randomUUID() + "@gmail.com", 30)),
+                        CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectCookie()
+                .exists("customer-primary-until")
+                .returnResult(Void.class)
+                .getResponseCookies()
+                .getFirst("customer-primary-until");
+        assertThat(cookie).isNotNull();
+
+        //and the following reads are served with it
+        webTestClient.get()
+                .uri(API_ROOT_URL + "?limit=1")
+                .cookie(cookie.getName(), cookie.getValue())
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+}